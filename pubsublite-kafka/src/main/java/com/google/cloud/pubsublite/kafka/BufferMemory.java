@@ -0,0 +1,239 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.kafka.clients.producer.BufferExhaustedException;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+
+/**
+ * A budget of bytes shared by all messages which a producer has not finished publishing, equivalent
+ * to Kafka's buffer.memory. Senders wait for bytes to be released for up to the max block time,
+ * equivalent to Kafka's max.block.ms.
+ *
+ * <p>As in Kafka's BufferPool, waiters are served in the order they arrived, so that a large
+ * request is not starved by a stream of smaller ones. Callers only waiting to be told that bytes
+ * are available reserve nothing, so they are kept apart and never hold up senders.
+ */
+final class BufferMemory {
+  private static final class Waiter {
+    final long bytes;
+    // Signalled when the bytes are reserved.
+    final Condition reserved;
+    boolean granted = false;
+
+    Waiter(long bytes, Condition reserved) {
+      this.bytes = bytes;
+      this.reserved = reserved;
+    }
+  }
+
+  private static final class Listener {
+    final long bytes;
+    final SettableApiFuture<Void> available = SettableApiFuture.create();
+
+    Listener(long bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+  private final long totalBytes;
+  private final Duration maxBlock;
+
+  private final Lock lock = new ReentrantLock();
+
+  private long availableBytes;
+  // Callers waiting to reserve bytes, in arrival order.
+  private final Deque<Waiter> waiters = new ArrayDeque<>();
+  // Callers waiting to be told that bytes are available, checked whenever bytes are returned.
+  private final List<Listener> listeners = new ArrayList<>();
+
+  BufferMemory(long totalBytes, Duration maxBlock) {
+    this.totalBytes = totalBytes;
+    this.maxBlock = maxBlock;
+    this.availableBytes = totalBytes;
+  }
+
+  /**
+   * Reserves bytes for a message, waiting for up to the max block time if not enough are available
+   * or earlier callers are still waiting.
+   *
+   * @throws RecordTooLargeException if the message is larger than the whole budget.
+   * @throws BufferExhaustedException if the bytes could not be reserved within the max block time.
+   */
+  void acquire(long bytes) throws InterruptedException {
+    acquire(bytes, maxBlock);
+  }
+
+  /**
+   * Like {@link #acquire(long)}, waiting at most timeout instead of the max block time, for callers
+   * which already spent part of it.
+   */
+  void acquire(long bytes, Duration timeout) throws InterruptedException {
+    if (bytes > totalBytes) throw tooLarge(bytes);
+    long remainingNanos = MILLISECONDS.toNanos(timeout.toMillis());
+    List<Listener> ready = new ArrayList<>();
+    lock.lock();
+    try {
+      if (waiters.isEmpty() && availableBytes >= bytes) {
+        availableBytes -= bytes;
+        return;
+      }
+      Waiter waiter = new Waiter(bytes, lock.newCondition());
+      waiters.addLast(waiter);
+      try {
+        while (!waiter.granted && remainingNanos > 0) {
+          remainingNanos = waiter.reserved.awaitNanos(remainingNanos);
+        }
+      } catch (InterruptedException e) {
+        abandon(waiter);
+        ready = drain();
+        throw e;
+      }
+      if (waiter.granted) return;
+      abandon(waiter);
+      ready = drain();
+      throw new BufferExhaustedException(
+          String.format(
+              "Failed to allocate %d bytes within the configured max blocking time %d ms."
+                  + " Total memory: %d bytes. Available memory: %d bytes.",
+              bytes, maxBlock.toMillis(), totalBytes, availableBytes));
+    } finally {
+      lock.unlock();
+      complete(ready);
+    }
+  }
+
+  private RecordTooLargeException tooLarge(long bytes) {
+    return new RecordTooLargeException(
+        String.format(
+            "The message is %d bytes when serialized which is larger than the total memory"
+                + " buffer you have configured with the buffer.memory configuration.",
+            bytes));
+  }
+
+  /**
+   * Returns a future which completes once the given number of bytes are available, without
+   * reserving them or holding up callers of {@link #acquire}. Fails with a {@link
+   * RecordTooLargeException} if bytes exceeds the whole budget. Cancelling the future stops
+   * waiting.
+   */
+  ApiFuture<Void> onAvailable(long bytes) {
+    if (bytes > totalBytes) return ApiFutures.immediateFailedFuture(tooLarge(bytes));
+    Listener listener;
+    lock.lock();
+    try {
+      if (availableBytes >= bytes) return ApiFutures.immediateFuture(null);
+      listener = new Listener(bytes);
+      listeners.add(listener);
+    } finally {
+      lock.unlock();
+    }
+    listener.available.addListener(
+        () -> {
+          if (listener.available.isCancelled()) remove(listener);
+        },
+        MoreExecutors.directExecutor());
+    return listener.available;
+  }
+
+  /** Returns bytes reserved by a message which finished publishing. */
+  void release(long bytes) {
+    List<Listener> ready;
+    lock.lock();
+    try {
+      availableBytes += bytes;
+      ready = drain();
+    } finally {
+      lock.unlock();
+    }
+    complete(ready);
+  }
+
+  private void remove(Listener listener) {
+    lock.lock();
+    try {
+      listeners.remove(listener);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Removes a blocking waiter which gave up, returning any bytes granted to it meanwhile. Must be
+  // called while holding the lock.
+  private void abandon(Waiter waiter) {
+    if (waiter.granted) {
+      availableBytes += waiter.bytes;
+    } else {
+      waiters.remove(waiter);
+    }
+  }
+
+  // Serves waiters from the head of the queue while enough bytes are available, then removes and
+  // returns the listeners for which enough bytes remain. Must be called while holding the lock.
+  private List<Listener> drain() {
+    while (!waiters.isEmpty() && waiters.peekFirst().bytes <= availableBytes) {
+      Waiter waiter = waiters.removeFirst();
+      availableBytes -= waiter.bytes;
+      waiter.granted = true;
+      waiter.reserved.signal();
+    }
+    List<Listener> ready = new ArrayList<>();
+    for (Iterator<Listener> it = listeners.iterator(); it.hasNext(); ) {
+      Listener listener = it.next();
+      if (listener.bytes <= availableBytes) {
+        ready.add(listener);
+        it.remove();
+      }
+    }
+    return ready;
+  }
+
+  // Completes listeners outside the lock, as their callbacks run inline.
+  private static void complete(List<Listener> ready) {
+    for (Listener listener : ready) {
+      listener.available.set(null);
+    }
+  }
+
+  long totalBytes() {
+    return totalBytes;
+  }
+
+  long availableBytes() {
+    lock.lock();
+    try {
+      return availableBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
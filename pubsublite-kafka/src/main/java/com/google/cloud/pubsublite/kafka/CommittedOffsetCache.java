@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.pubsublite.Offset;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.SubscriptionPath;
+import com.google.cloud.pubsublite.internal.CloseableMonitor;
+import com.google.cloud.pubsublite.internal.CursorClient;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Caches the committed offsets of a subscription, so that they can be read without listing the
+ * cursors of every partition.
+ *
+ * <p>The offsets are fetched on first use and refreshed in the background after that, picking up
+ * commits made by other consumers. Successful commits by this consumer update the cache
+ * immediately, and are not overwritten by a refresh which started before them.
+ */
+class CommittedOffsetCache implements AutoCloseable {
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private final CursorClient client;
+  private final SubscriptionPath subscription;
+  private final Future<?> refreshTask;
+
+  private final CloseableMonitor monitor = new CloseableMonitor();
+  private final Map<Partition, Offset> offsets = new HashMap<>();
+  // The generation at which each partition was last updated by a local commit. Refreshes which
+  // started before that generation do not overwrite the partition.
+  private final Map<Partition, Long> localUpdates = new HashMap<>();
+  private long generation = 0;
+  private boolean refreshing = false;
+  // Set once the offsets have been fetched. Until then, the outstanding initial fetch if any.
+  private boolean loaded = false;
+  private SettableApiFuture<Map<Partition, Offset>> initialLoad = null;
+
+  CommittedOffsetCache(
+      CursorClient client,
+      SubscriptionPath subscription,
+      Duration refreshInterval,
+      ScheduledExecutorService executor) {
+    this.client = client;
+    this.subscription = subscription;
+    this.refreshTask =
+        executor.scheduleWithFixedDelay(
+            this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(), MILLISECONDS);
+  }
+
+  /**
+   * The committed offsets of all partitions with a committed cursor. Only the first call, and calls
+   * made while the first fetch is outstanding or after it failed, wait for an RPC.
+   */
+  ApiFuture<Map<Partition, Offset>> get() {
+    SettableApiFuture<Map<Partition, Offset>> load;
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      if (loaded) return ApiFutures.immediateFuture(ImmutableMap.copyOf(offsets));
+      if (initialLoad != null) return initialLoad;
+      load = SettableApiFuture.create();
+      initialLoad = load;
+      refreshing = true;
+    }
+    fetch();
+    return load;
+  }
+
+  /** Records offsets which were successfully committed by this consumer. */
+  void update(Map<Partition, Offset> committed) {
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      ++generation;
+      committed.forEach(
+          (partition, offset) -> {
+            offsets.put(partition, offset);
+            localUpdates.put(partition, generation);
+          });
+    }
+  }
+
+  private void refresh() {
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      if (!loaded || refreshing) return;
+      refreshing = true;
+    }
+    fetch();
+  }
+
+  private void fetch() {
+    long startGeneration;
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      startGeneration = generation;
+    }
+    ApiFutures.addCallback(
+        client.listPartitionCursors(subscription),
+        new ApiFutureCallback<Map<Partition, Offset>>() {
+          @Override
+          public void onFailure(Throwable t) {
+            SettableApiFuture<Map<Partition, Offset>> load;
+            try (CloseableMonitor.Hold h = monitor.enter()) {
+              refreshing = false;
+              load = initialLoad;
+              // Let the next call to get retry the initial fetch.
+              initialLoad = null;
+            }
+            if (load != null) {
+              load.setException(t);
+              return;
+            }
+            logger.atWarning().withCause(t).log(
+                "Failed to refresh the committed cursors of %s.", subscription);
+          }
+
+          @Override
+          public void onSuccess(Map<Partition, Offset> fetched) {
+            SettableApiFuture<Map<Partition, Offset>> load;
+            Map<Partition, Offset> snapshot;
+            try (CloseableMonitor.Hold h = monitor.enter()) {
+              fetched.forEach(
+                  (partition, offset) -> {
+                    if (localUpdates.getOrDefault(partition, -1L) <= startGeneration) {
+                      offsets.put(partition, offset);
+                    }
+                  });
+              refreshing = false;
+              loaded = true;
+              load = initialLoad;
+              initialLoad = null;
+              snapshot = ImmutableMap.copyOf(offsets);
+            }
+            if (load != null) load.set(snapshot);
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public void close() {
+    refreshTask.cancel(false);
+  }
+}
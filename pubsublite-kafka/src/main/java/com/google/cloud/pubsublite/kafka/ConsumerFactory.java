@@ -16,6 +16,6 @@
 
 package com.google.cloud.pubsublite.kafka;
 
-interface ConsumerFactory {
-  SingleSubscriptionConsumer newConsumer();
+interface ConsumerFactory<K, V> {
+  SingleSubscriptionConsumer<K, V> newConsumer();
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.TopicPath;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.Map;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.CumulativeSum;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Meter;
+import org.apache.kafka.common.utils.Time;
+
+/**
+ * The metrics recorded by a consumer. Metrics use the names and groups of the equivalent
+ * KafkaConsumer metrics where one exists, so that existing dashboards and reporters work unchanged.
+ */
+class ConsumerMetrics implements AutoCloseable {
+  static final String CONSUMER_GROUP = "consumer-metrics";
+  static final String FETCH_GROUP = "consumer-fetch-manager-metrics";
+  static final String COORDINATOR_GROUP = "consumer-coordinator-metrics";
+
+  private final Metrics metrics;
+  private final String topic;
+  private final Time time = Time.SYSTEM;
+
+  private final Sensor recordsConsumed;
+  private final Sensor bytesConsumed;
+  private final Sensor pollLatency;
+  private final Sensor timeBetweenPoll;
+  private final Sensor pollIdleRatio;
+  private final Sensor commitLatency;
+  private final Sensor commitFailures;
+  private final Sensor resets;
+
+  // Only accessed by the polling thread.
+  private long lastPollStartMs = -1;
+  private long timeSinceLastPollMs = 0;
+
+  ConsumerMetrics(Metrics metrics, TopicPath topic) {
+    this.metrics = metrics;
+    this.topic = topic.toString();
+    this.recordsConsumed =
+        meter("records-consumed", "records-consumed", "records", ImmutableMap.of());
+    this.bytesConsumed = meter("bytes-consumed", "bytes-consumed", "bytes", ImmutableMap.of());
+    this.pollLatency = latency("poll-latency", CONSUMER_GROUP, "a call to poll");
+    this.timeBetweenPoll =
+        latency("time-between-poll", CONSUMER_GROUP, "the time between the starts of polls");
+    this.pollIdleRatio = metrics.sensor("poll-idle-ratio");
+    pollIdleRatio.add(
+        metrics.metricName(
+            "poll-idle-ratio-avg",
+            CONSUMER_GROUP,
+            "The average fraction of time the consumer's poll() is idle as opposed to waiting for"
+                + " the user code to process records."),
+        new Avg());
+    this.commitLatency = latency("commit-latency", COORDINATOR_GROUP, "a commit request");
+    commitLatency.add(
+        new Meter(
+            metrics.metricName(
+                "commit-rate", COORDINATOR_GROUP, "The number of commit calls per second."),
+            metrics.metricName(
+                "commit-total", COORDINATOR_GROUP, "The total number of commit calls.")));
+    this.commitFailures = metrics.sensor("commit-failures");
+    commitFailures.add(
+        metrics.metricName(
+            "commit-failed-total", COORDINATOR_GROUP, "The total number of failed commit calls."),
+        new CumulativeSum());
+    this.resets = metrics.sensor("partition-resets");
+    resets.add(
+        metrics.metricName(
+            "partition-reset-total",
+            FETCH_GROUP,
+            "The total number of server-initiated seeks handled by resetting a partition."),
+        new CumulativeSum());
+  }
+
+  private Sensor meter(String sensorName, String name, String unit, Map<String, String> tags) {
+    Sensor sensor = metrics.sensor(sensorName);
+    sensor.add(
+        new Meter(
+            metrics.metricName(
+                name + "-rate",
+                FETCH_GROUP,
+                "The average number of " + unit + " consumed per second.",
+                tags),
+            metrics.metricName(
+                name + "-total", FETCH_GROUP, "The total number of " + unit + " consumed.", tags)));
+    return sensor;
+  }
+
+  private Sensor latency(String name, String group, String subject) {
+    Sensor sensor = metrics.sensor(name);
+    sensor.add(
+        metrics.metricName(name + "-avg", group, "The average time in ms of " + subject + "."),
+        new Avg());
+    sensor.add(
+        metrics.metricName(name + "-max", group, "The maximum time in ms of " + subject + "."),
+        new Max());
+    return sensor;
+  }
+
+  private static String partitionSensorName(String name, Partition partition) {
+    return name + ".partition-" + partition.value();
+  }
+
+  private Map<String, String> partitionTags(Partition partition) {
+    return ImmutableMap.of("topic", topic, "partition", Long.toString(partition.value()));
+  }
+
+  Map<MetricName, ? extends Metric> metrics() {
+    return metrics.metrics();
+  }
+
+  /** Registers the per-partition metrics of a newly assigned partition. */
+  void addPartition(Partition partition) {
+    if (metrics.getSensor(partitionSensorName("records-consumed", partition)) != null) return;
+    Map<String, String> tags = partitionTags(partition);
+    meter(partitionSensorName("records-consumed", partition), "records-consumed", "records", tags);
+    meter(partitionSensorName("bytes-consumed", partition), "bytes-consumed", "bytes", tags);
+  }
+
+  /** Removes the per-partition metrics of an unassigned partition. */
+  void removePartition(Partition partition) {
+    metrics.removeSensor(partitionSensorName("records-consumed", partition));
+    metrics.removeSensor(partitionSensorName("bytes-consumed", partition));
+  }
+
+  /** Records the start of a call to poll and returns its start time. */
+  long recordPollStart() {
+    long nowMs = time.milliseconds();
+    if (lastPollStartMs >= 0) {
+      timeSinceLastPollMs = nowMs - lastPollStartMs;
+      timeBetweenPoll.record(timeSinceLastPollMs, nowMs);
+    }
+    lastPollStartMs = nowMs;
+    return nowMs;
+  }
+
+  void recordPollEnd(long pollStartMs) {
+    long nowMs = time.milliseconds();
+    long pollTimeMs = nowMs - pollStartMs;
+    pollLatency.record(pollTimeMs, nowMs);
+    if (pollTimeMs + timeSinceLastPollMs > 0) {
+      pollIdleRatio.record(pollTimeMs * 1.0 / (pollTimeMs + timeSinceLastPollMs), nowMs);
+    }
+  }
+
+  void recordConsumed(Partition partition, int records, long bytes) {
+    long nowMs = time.milliseconds();
+    recordsConsumed.record(records, nowMs);
+    bytesConsumed.record(bytes, nowMs);
+    Sensor partitionRecords = metrics.getSensor(partitionSensorName("records-consumed", partition));
+    if (partitionRecords != null) partitionRecords.record(records, nowMs);
+    Sensor partitionBytes = metrics.getSensor(partitionSensorName("bytes-consumed", partition));
+    if (partitionBytes != null) partitionBytes.record(bytes, nowMs);
+  }
+
+  /** Records the latency of the commit and whether it failed once it completes. */
+  <T> ApiFuture<T> recordCommit(ApiFuture<T> commit) {
+    long startMs = time.milliseconds();
+    ApiFutures.addCallback(
+        commit,
+        new ApiFutureCallback<T>() {
+          @Override
+          public void onFailure(Throwable t) {
+            commitLatency.record(time.milliseconds() - startMs);
+            commitFailures.record();
+          }
+
+          @Override
+          public void onSuccess(T result) {
+            commitLatency.record(time.milliseconds() - startMs);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return commit;
+  }
+
+  void recordReset() {
+    resets.record();
+  }
+
+  @Override
+  public void close() {
+    metrics.close();
+  }
+}
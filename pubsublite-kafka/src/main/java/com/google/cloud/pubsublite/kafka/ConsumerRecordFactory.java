@@ -1,5 +1,5 @@
 /*
- * Copyright 2021 Google LLC
+ * Copyright 2026 Google LLC
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,19 +16,12 @@
 
 package com.google.cloud.pubsublite.kafka;
 
-import com.google.api.core.ApiFuture;
-import com.google.api.core.SettableApiFuture;
-import com.google.common.util.concurrent.MoreExecutors;
-import java.util.Collection;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.TopicPath;
+import com.google.cloud.pubsublite.proto.SequencedMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 
-final class ApiFuturesExtensions {
-  private ApiFuturesExtensions() {}
-
-  public static <T> ApiFuture<Void> whenFirstDone(Collection<ApiFuture<T>> futures) {
-    SettableApiFuture<Void> someFutureDone = SettableApiFuture.create();
-    futures.forEach(
-        future ->
-            future.addListener(() -> someFutureDone.set(null), MoreExecutors.directExecutor()));
-    return someFutureDone;
-  }
+/** A factory for making the ConsumerRecords a consumer returns from received messages. */
+interface ConsumerRecordFactory<K, V> {
+  ConsumerRecord<K, V> newRecord(SequencedMessage message, TopicPath topic, Partition partition);
 }
@@ -19,6 +19,7 @@ package com.google.cloud.pubsublite.kafka;
 import static com.google.cloud.pubsublite.internal.ExtractStatus.toCanonical;
 import static com.google.cloud.pubsublite.internal.wire.ServiceClients.addDefaultSettings;
 import static com.google.cloud.pubsublite.internal.wire.ServiceClients.getCallContext;
+import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.api.gax.rpc.ApiCallContext;
 import com.google.api.gax.rpc.ApiException;
@@ -43,6 +44,7 @@ import com.google.cloud.pubsublite.internal.wire.RoutingMetadata;
 import com.google.cloud.pubsublite.internal.wire.ServiceClients;
 import com.google.cloud.pubsublite.internal.wire.SubscriberBuilder;
 import com.google.cloud.pubsublite.internal.wire.SubscriberFactory;
+import com.google.cloud.pubsublite.internal.wire.SystemExecutors;
 import com.google.cloud.pubsublite.proto.Subscription;
 import com.google.cloud.pubsublite.v1.CursorServiceClient;
 import com.google.cloud.pubsublite.v1.CursorServiceSettings;
@@ -50,12 +52,33 @@ import com.google.cloud.pubsublite.v1.PartitionAssignmentServiceClient;
 import com.google.cloud.pubsublite.v1.PartitionAssignmentServiceSettings;
 import com.google.cloud.pubsublite.v1.SubscriberServiceClient;
 import com.google.cloud.pubsublite.v1.SubscriberServiceSettings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ObjectArrays;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.config.ConfigDef.Type;
+import org.apache.kafka.common.metrics.MetricsReporter;
+import org.apache.kafka.common.serialization.Deserializer;
 
 @AutoValue
 public abstract class ConsumerSettings {
   private static final Framework FRAMEWORK = Framework.of("KAFKA_SHIM");
+  private static final ImmutableSet<String> SUPPORTED_KAFKA_PROPERTIES =
+      ImmutableSet.of(
+          ConsumerConfig.MAX_POLL_RECORDS_CONFIG,
+          ConsumerConfig.FETCH_MAX_BYTES_CONFIG,
+          ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG,
+          ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG,
+          ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG,
+          ConsumerConfig.CLIENT_ID_CONFIG,
+          ConsumerConfig.METRIC_REPORTER_CLASSES_CONFIG);
 
   // Required parameters.
   abstract SubscriptionPath subscriptionPath();
@@ -65,10 +88,33 @@ public abstract class ConsumerSettings {
   // Optional parameters.
   abstract boolean autocommit();
 
+  abstract Duration autocommitInterval();
+
   abstract Optional<TopicPath> topicPathOverride();
 
+  abstract int maxPollRecords();
+
+  abstract long maxPollBytes();
+
+  abstract Duration headOffsetRefreshInterval();
+
+  abstract Duration committedOffsetRefreshInterval();
+
+  abstract Optional<String> clientId();
+
+  abstract ImmutableList<MetricsReporter> metricsReporters();
+
+  abstract Optional<Executor> deserializationExecutor();
+
   public static Builder newBuilder() {
-    return new AutoValue_ConsumerSettings.Builder().setAutocommit(false);
+    return new AutoValue_ConsumerSettings.Builder()
+        .setAutocommit(false)
+        .setAutocommitInterval(Duration.ofSeconds(5))
+        .setMaxPollRecords(Integer.MAX_VALUE)
+        .setMaxPollBytes(Long.MAX_VALUE)
+        .setHeadOffsetRefreshInterval(Duration.ofSeconds(10))
+        .setCommittedOffsetRefreshInterval(Duration.ofSeconds(10))
+        .setMetricsReporters(ImmutableList.of());
   }
 
   @AutoValue.Builder
@@ -87,6 +133,14 @@ public abstract class ConsumerSettings {
     /** The autocommit mode. */
     public abstract Builder setAutocommit(boolean autocommit);
 
+    /**
+     * How often offsets are auto-committed when autocommit is enabled, equivalent to Kafka's
+     * auto.commit.interval.ms. Commits are sent from calls to poll, and only the latest offset of
+     * each partition is committed. Pending offsets are also committed when a partition is revoked
+     * and on close. A zero interval commits on every poll. Defaults to 5 seconds.
+     */
+    public abstract Builder setAutocommitInterval(Duration interval);
+
     /**
      * An override for the TopicPath used by this consumer.
      *
@@ -98,10 +152,183 @@ public abstract class ConsumerSettings {
      */
     public abstract Builder setTopicPathOverride(TopicPath topicPath);
 
-    public abstract ConsumerSettings build();
+    /**
+     * The maximum number of records returned by a single call to poll, equivalent to Kafka's
+     * max.poll.records. Records which do not fit are returned by subsequent calls to poll.
+     */
+    public abstract Builder setMaxPollRecords(int maxPollRecords);
+
+    /**
+     * The maximum total size in bytes of the records returned by a single call to poll.
+     *
+     * <p>This is not an absolute maximum: as with Kafka's fetch.max.bytes, if no record fits within
+     * the limit, a single larger record is returned so that the consumer can make progress.
+     */
+    public abstract Builder setMaxPollBytes(long maxPollBytes);
+
+    /**
+     * How often the head offsets of partitions are refreshed in the background for currentLag.
+     * Defaults to 10 seconds.
+     */
+    public abstract Builder setHeadOffsetRefreshInterval(Duration interval);
+
+    /**
+     * How often the committed offsets of the subscription are refreshed in the background for
+     * committed and position, once they have first been read. Commits by this consumer are seen
+     * immediately, while commits by other consumers are seen after at most this interval. Defaults
+     * to 10 seconds.
+     */
+    public abstract Builder setCommittedOffsetRefreshInterval(Duration interval);
+
+    /**
+     * The client id, equivalent to Kafka's client.id, which tags every metric of the consumer. A
+     * unique id is generated for each consumer if this is not set.
+     */
+    public abstract Builder setClientId(String clientId);
+
+    /**
+     * Reporters which are notified of the consumer's metrics in addition to JMX, equivalent to
+     * Kafka's metric.reporters. The reporters must already be configured.
+     */
+    public abstract Builder setMetricsReporters(List<MetricsReporter> reporters);
+
+    /**
+     * An executor on which consumers instantiated with deserializers decode the records of
+     * different partitions in parallel. The deserializers of such consumers are then called from
+     * several threads at once, so they must be thread-safe. The executor is not shut down when the
+     * consumer is closed. By default, records are decoded on the thread calling poll, as in a
+     * KafkaConsumer.
+     */
+    public abstract Builder setDeserializationExecutor(Executor executor);
+
+    /**
+     * Applies Kafka consumer properties to these settings.
+     *
+     * <p>{@code max.poll.records}, {@code fetch.max.bytes}, {@code enable.auto.commit} and {@code
+     * auto.commit.interval.ms} set the equivalent settings. {@code max.partition.fetch.bytes} sets
+     * the outstanding bytes of the per-partition flow control settings, keeping any limit on
+     * outstanding messages set earlier and otherwise with no such limit. {@code client.id} sets the
+     * client id. {@code metric.reporters} instantiates the named reporters and configures them with
+     * these properties. A warning is logged for every other property, as it has no effect.
+     */
+    public Builder setKafkaProperties(Map<String, ?> properties) {
+      KafkaProperties.warnUnsupported(properties, SUPPORTED_KAFKA_PROPERTIES, "consumer");
+      KafkaProperties.<Integer>get(properties, ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Type.INT)
+          .ifPresent(this::setMaxPollRecords);
+      KafkaProperties.<Integer>get(properties, ConsumerConfig.FETCH_MAX_BYTES_CONFIG, Type.INT)
+          .ifPresent(this::setMaxPollBytes);
+      KafkaProperties.<Boolean>get(
+              properties, ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, Type.BOOLEAN)
+          .ifPresent(this::setAutocommit);
+      KafkaProperties.<Integer>get(
+              properties, ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG, Type.INT)
+          .ifPresent(intervalMs -> setAutocommitInterval(Duration.ofMillis(intervalMs)));
+      KafkaProperties.<Integer>get(
+              properties, ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, Type.INT)
+          .ifPresent(
+              bytes ->
+                  setPerPartitionFlowControlSettings(
+                      FlowControlSettings.builder()
+                          .setBytesOutstanding(bytes)
+                          .setMessagesOutstanding(
+                              perPartitionFlowControlSettings()
+                                  .map(FlowControlSettings::messagesOutstanding)
+                                  .orElse(Long.MAX_VALUE))
+                          .build()));
+      KafkaProperties.<String>get(properties, ConsumerConfig.CLIENT_ID_CONFIG, Type.STRING)
+          .ifPresent(this::setClientId);
+      KafkaProperties.<List<String>>get(
+              properties, ConsumerConfig.METRIC_REPORTER_CLASSES_CONFIG, Type.LIST)
+          .ifPresent(
+              classNames -> setMetricsReporters(KafkaMetrics.newReporters(classNames, properties)));
+      return this;
+    }
+
+    abstract Optional<FlowControlSettings> perPartitionFlowControlSettings();
+
+    abstract ConsumerSettings autoBuild();
+
+    public ConsumerSettings build() {
+      ConsumerSettings settings = autoBuild();
+      checkArgument(
+          !settings.autocommitInterval().isNegative(), "autocommitInterval must not be negative.");
+      checkArgument(settings.maxPollRecords() > 0, "maxPollRecords must be positive.");
+      checkArgument(settings.maxPollBytes() > 0, "maxPollBytes must be positive.");
+      checkArgument(
+          !settings.headOffsetRefreshInterval().isNegative()
+              && !settings.headOffsetRefreshInterval().isZero(),
+          "headOffsetRefreshInterval must be positive.");
+      checkArgument(
+          !settings.committedOffsetRefreshInterval().isNegative()
+              && !settings.committedOffsetRefreshInterval().isZero(),
+          "committedOffsetRefreshInterval must be positive.");
+      return settings;
+    }
   }
 
   public Consumer<byte[], byte[]> instantiate() throws ApiException {
+    return instantiateNotifying();
+  }
+
+  /** Like {@link #instantiate()}, but returns the consumer as a {@link NotifyingConsumer}. */
+  public NotifyingConsumer<byte[], byte[]> instantiateNotifying() throws ApiException {
+    return instantiate(RecordTransforms::fromMessage, Optional.empty());
+  }
+
+  /**
+   * Instantiate a consumer whose record keys and values are read-only views of the received
+   * messages.
+   *
+   * <p>Unlike {@link #instantiate()}, this does not copy the key and value of each message when
+   * building records. The buffers remain valid after subsequent calls to poll.
+   */
+  public Consumer<ByteBuffer, ByteBuffer> instantiateZeroCopy() throws ApiException {
+    return instantiateNotifyingZeroCopy();
+  }
+
+  /**
+   * Like {@link #instantiateZeroCopy()}, but returns the consumer as a {@link NotifyingConsumer}.
+   */
+  public NotifyingConsumer<ByteBuffer, ByteBuffer> instantiateNotifyingZeroCopy()
+      throws ApiException {
+    return instantiate(RecordTransforms::fromMessageZeroCopy, Optional.empty());
+  }
+
+  /**
+   * Instantiate a consumer whose record keys and values are decoded with the given deserializers,
+   * which are closed when the consumer is closed. The deserializers must already be configured.
+   *
+   * <p>The records returned by a poll are decoded on the thread calling poll, unless a
+   * deserialization executor is set. Then the records of different partitions are decoded in
+   * parallel on it, so the deserializers must be thread-safe. The records of each partition are
+   * returned in order. If a record cannot be decoded, the records before it are returned first,
+   * then poll throws a {@link org.apache.kafka.common.errors.RecordDeserializationException} naming
+   * its partition and offset. As with a KafkaConsumer, the position stays at that record, so polls
+   * keep throwing until the consumer seeks past it.
+   */
+  public <K, V> Consumer<K, V> instantiate(
+      Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) throws ApiException {
+    return instantiateNotifying(keyDeserializer, valueDeserializer);
+  }
+
+  /**
+   * Like {@link #instantiate(Deserializer, Deserializer)}, but returns the consumer as a {@link
+   * NotifyingConsumer}.
+   */
+  public <K, V> NotifyingConsumer<K, V> instantiateNotifying(
+      Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) throws ApiException {
+    return instantiate(
+        RecordTransforms.deserializing(keyDeserializer, valueDeserializer),
+        deserializationExecutor(),
+        keyDeserializer,
+        valueDeserializer);
+  }
+
+  private <K, V> NotifyingConsumer<K, V> instantiate(
+      ConsumerRecordFactory<K, V> recordFactory,
+      Optional<Executor> recordExecutor,
+      AutoCloseable... recordResources)
+      throws ApiException {
     try {
       CloudRegion region = subscriptionPath().location().extractRegion();
       TopicPath topic;
@@ -184,19 +411,43 @@ public abstract class ConsumerSettings {
               throw toCanonical(t);
             }
           };
-      ConsumerFactory consumerFactory =
-          () ->
-              new SingleSubscriptionConsumerImpl(
-                  topic, autocommit(), pullSubscriberFactory, committerFactory);
-
+      ConsumerMetrics metrics =
+          new ConsumerMetrics(
+              KafkaMetrics.newMetrics(
+                  "kafka.consumer",
+                  clientId().orElseGet(() -> KafkaMetrics.generateClientId("consumer")),
+                  metricsReporters()),
+              topic);
       CursorClient cursorClient =
           CursorClient.create(CursorClientSettings.newBuilder().setRegion(region).build());
+      CommittedOffsetCache committedOffsets =
+          new CommittedOffsetCache(
+              cursorClient,
+              subscriptionPath(),
+              committedOffsetRefreshInterval(),
+              SystemExecutors.getAlarmExecutor());
+      ConsumerFactory<K, V> consumerFactory =
+          () ->
+              new SingleSubscriptionConsumerImpl<>(
+                  topic,
+                  autocommit(),
+                  autocommitInterval(),
+                  maxPollRecords(),
+                  maxPollBytes(),
+                  pullSubscriberFactory,
+                  committerFactory,
+                  recordFactory,
+                  recordExecutor,
+                  SystemExecutors.getFuturesExecutor(),
+                  metrics,
+                  committedOffsets);
+
       TopicStatsClient topicStatsClient =
           TopicStatsClient.create(TopicStatsClientSettings.newBuilder().setRegion(region).build());
       SharedBehavior shared =
           new SharedBehavior(
               AdminClient.create(AdminClientSettings.newBuilder().setRegion(region).build()));
-      return new PubsubLiteConsumer(
+      return new PubsubLiteConsumer<>(
           subscriptionPath(),
           topic,
           shared,
@@ -204,8 +455,17 @@ public abstract class ConsumerSettings {
           assignerFactory,
           cursorClient,
           topicStatsClient,
-          cursorServiceClient,
-          subscriberServiceClient);
+          new HeadOffsetCache(
+              topicStatsClient,
+              topic,
+              headOffsetRefreshInterval(),
+              SystemExecutors.getAlarmExecutor()),
+          committedOffsets,
+          metrics,
+          ObjectArrays.concat(
+              new AutoCloseable[] {cursorServiceClient, subscriberServiceClient},
+              recordResources,
+              AutoCloseable.class));
     } catch (Exception e) {
       throw toCanonical(e).underlying;
     }
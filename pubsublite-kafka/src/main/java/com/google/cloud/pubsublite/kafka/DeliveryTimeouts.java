@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.pubsublite.internal.CloseableMonitor;
+import com.google.common.base.Ticker;
+import com.google.common.math.LongMath;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import org.apache.kafka.common.errors.TimeoutException;
+
+/**
+ * Fails sends which are not delivered within the delivery timeout, equivalent to Kafka's
+ * delivery.timeout.ms.
+ *
+ * <p>Pending sends are kept in a hashed timer wheel shared by all sends. Each bucket of the wheel
+ * holds the sends whose deadline falls within one tick, and a single task expires the buckets of
+ * the ticks which have passed. Sends may therefore fail up to one tick after their deadline.
+ */
+final class DeliveryTimeouts implements AutoCloseable {
+  // The number of ticks the delivery timeout is divided into.
+  static final int TICKS_PER_TIMEOUT = 256;
+  static final Duration MIN_TICK = Duration.ofMillis(10);
+
+  private static final class Pending {
+    final long deadlineNanos;
+    final SettableApiFuture<?> future;
+
+    Pending(long deadlineNanos, SettableApiFuture<?> future) {
+      this.deadlineNanos = deadlineNanos;
+      this.future = future;
+    }
+  }
+
+  private final Duration timeout;
+  private final long timeoutNanos;
+  private final long tickNanos;
+  private final Ticker ticker;
+  private final long startNanos;
+  private final List<Set<Pending>> buckets;
+  private final Future<?> sweepTask;
+
+  private final CloseableMonitor monitor = new CloseableMonitor();
+
+  // The last tick whose bucket was expired, relative to startNanos.
+  private long sweptTick = 0;
+
+  DeliveryTimeouts(Duration timeout, Ticker ticker, ScheduledExecutorService executor) {
+    this.timeout = timeout;
+    this.timeoutNanos = MILLISECONDS.toNanos(timeout.toMillis());
+    this.tickNanos =
+        Math.max(
+            MILLISECONDS.toNanos(MIN_TICK.toMillis()),
+            LongMath.divide(timeoutNanos, TICKS_PER_TIMEOUT, RoundingMode.CEILING));
+    this.ticker = ticker;
+    this.startNanos = ticker.read();
+    // A deadline is at most TICKS_PER_TIMEOUT + 1 ticks ahead, so buckets are not shared by ticks
+    // of different revolutions unless sweeping falls behind.
+    this.buckets = new ArrayList<>(TICKS_PER_TIMEOUT + 2);
+    for (int i = 0; i < TICKS_PER_TIMEOUT + 2; i++) {
+      buckets.add(ConcurrentHashMap.newKeySet());
+    }
+    this.sweepTask = executor.scheduleAtFixedRate(this::sweep, tickNanos, tickNanos, NANOSECONDS);
+  }
+
+  private long elapsedNanos() {
+    return ticker.read() - startNanos;
+  }
+
+  private Set<Pending> bucket(long tick) {
+    return buckets.get((int) (tick % buckets.size()));
+  }
+
+  /**
+   * Returns a future which completes as the given one does, or fails with a Kafka {@link
+   * TimeoutException} if it does not complete within the delivery timeout.
+   */
+  <T> ApiFuture<T> track(ApiFuture<T> future) {
+    if (future.isDone()) return future;
+    SettableApiFuture<T> result = SettableApiFuture.create();
+    long deadlineNanos = LongMath.saturatedAdd(elapsedNanos(), timeoutNanos);
+    // Expire the send with the first tick which starts after its deadline.
+    Set<Pending> bucket = bucket(deadlineNanos / tickNanos + 1);
+    Pending pending = new Pending(deadlineNanos, result);
+    bucket.add(pending);
+    ApiFutures.addCallback(
+        future,
+        new ApiFutureCallback<T>() {
+          @Override
+          public void onFailure(Throwable t) {
+            bucket.remove(pending);
+            result.setException(t);
+          }
+
+          @Override
+          public void onSuccess(T value) {
+            bucket.remove(pending);
+            result.set(value);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return result;
+  }
+
+  /** Expires the sends in the buckets of the ticks which passed since the last sweep. */
+  void sweep() {
+    List<Pending> expired = new ArrayList<>();
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      long nowNanos = elapsedNanos();
+      long nowTick = nowNanos / tickNanos;
+      // Every bucket is visited at most once, even if sweeping fell behind by more than a
+      // revolution.
+      sweptTick = Math.max(sweptTick, nowTick - buckets.size());
+      while (sweptTick < nowTick) {
+        ++sweptTick;
+        Set<Pending> bucket = bucket(sweptTick);
+        for (Pending pending : bucket) {
+          if (pending.deadlineNanos <= nowNanos && bucket.remove(pending)) {
+            expired.add(pending);
+          }
+        }
+      }
+    }
+    // Fail futures outside the monitor, as their callbacks run inline.
+    for (Pending pending : expired) {
+      pending.future.setException(
+          new TimeoutException(
+              String.format(
+                  "The record was not delivered within the delivery timeout of %d ms.",
+                  timeout.toMillis())));
+    }
+  }
+
+  @Override
+  public void close() {
+    sweepTask.cancel(false);
+  }
+}
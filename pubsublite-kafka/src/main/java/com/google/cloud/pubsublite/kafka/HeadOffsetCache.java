@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.TopicPath;
+import com.google.cloud.pubsublite.internal.TopicStatsClient;
+import com.google.cloud.pubsublite.proto.Cursor;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Caches the head offsets of partitions, refreshing them in the background so that they can be read
+ * without a blocking RPC.
+ *
+ * <p>A partition is tracked from the first time its head offset is requested until it is no longer
+ * retained.
+ */
+class HeadOffsetCache implements AutoCloseable {
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private final TopicStatsClient client;
+  private final TopicPath topic;
+  private final Future<?> refreshTask;
+
+  private final Set<Partition> tracked = ConcurrentHashMap.newKeySet();
+  // Partitions with an outstanding head cursor request, which are skipped by refreshes.
+  private final Set<Partition> inFlight = ConcurrentHashMap.newKeySet();
+  private final Map<Partition, Long> headOffsets = new ConcurrentHashMap<>();
+
+  HeadOffsetCache(
+      TopicStatsClient client,
+      TopicPath topic,
+      Duration refreshInterval,
+      ScheduledExecutorService executor) {
+    this.client = client;
+    this.topic = topic;
+    this.refreshTask =
+        executor.scheduleWithFixedDelay(
+            this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(), MILLISECONDS);
+  }
+
+  /**
+   * The last fetched head offset of the partition, or empty if it is not known yet. The partition
+   * is tracked from now on if it was not already.
+   */
+  Optional<Long> get(Partition partition) {
+    if (tracked.add(partition)) {
+      refresh(partition);
+    }
+    return Optional.ofNullable(headOffsets.get(partition));
+  }
+
+  /** Stop tracking partitions which are not in the given set. */
+  void retainAll(Set<Partition> partitions) {
+    tracked.retainAll(partitions);
+    headOffsets.keySet().retainAll(partitions);
+  }
+
+  private void refresh() {
+    tracked.forEach(this::refresh);
+  }
+
+  private void refresh(Partition partition) {
+    if (!inFlight.add(partition)) return;
+    ApiFutures.addCallback(
+        client.computeHeadCursor(topic, partition),
+        new ApiFutureCallback<Cursor>() {
+          @Override
+          public void onFailure(Throwable t) {
+            inFlight.remove(partition);
+            logger.atWarning().withCause(t).log(
+                "Failed to fetch the head cursor of partition %s.", partition.value());
+          }
+
+          @Override
+          public void onSuccess(Cursor cursor) {
+            inFlight.remove(partition);
+            if (tracked.contains(partition)) {
+              headOffsets.put(partition, cursor.getOffset());
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public void close() {
+    refreshTask.cancel(false);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.metrics.JmxReporter;
+import org.apache.kafka.common.metrics.KafkaMetricsContext;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.MetricsReporter;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.common.utils.Utils;
+
+/** Helpers for creating the metrics registries of Pub/Sub Lite clients. */
+final class KafkaMetrics {
+  static final String CLIENT_ID_TAG = "client-id";
+
+  private static final AtomicInteger CLIENT_ID_SEQUENCE = new AtomicInteger(1);
+
+  private KafkaMetrics() {}
+
+  /** Generates a client id for a client with none configured, as Kafka clients do. */
+  static String generateClientId(String client) {
+    return client + "-" + CLIENT_ID_SEQUENCE.getAndIncrement();
+  }
+
+  /**
+   * Instantiates and configures the reporters named by a metric.reporters property, as a Kafka
+   * client would.
+   */
+  static ImmutableList<MetricsReporter> newReporters(
+      List<String> classNames, Map<String, ?> properties) {
+    ImmutableList.Builder<MetricsReporter> reporters = ImmutableList.builder();
+    for (String className : classNames) {
+      MetricsReporter reporter;
+      try {
+        reporter = Utils.newInstance(className, MetricsReporter.class);
+      } catch (ClassNotFoundException e) {
+        throw new KafkaException("Could not find metrics reporter class " + className, e);
+      }
+      reporter.configure(properties);
+      reporters.add(reporter);
+    }
+    return reporters.build();
+  }
+
+  /**
+   * Creates a metrics registry which reports to JMX and the given reporters under the namespace of
+   * the equivalent Kafka client, such as "kafka.consumer". Every metric is tagged with the client
+   * id, so that existing JMX queries and dashboards find it.
+   */
+  static Metrics newMetrics(String namespace, String clientId, List<MetricsReporter> reporters) {
+    JmxReporter jmxReporter = new JmxReporter();
+    jmxReporter.configure(ImmutableMap.of());
+    List<MetricsReporter> allReporters = new ArrayList<>(reporters);
+    allReporters.add(jmxReporter);
+    return new Metrics(
+        new MetricConfig().tags(ImmutableMap.of(CLIENT_ID_TAG, clientId)),
+        allReporters,
+        Time.SYSTEM,
+        new KafkaMetricsContext(namespace));
+  }
+}
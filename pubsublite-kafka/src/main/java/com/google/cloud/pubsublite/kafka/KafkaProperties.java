@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.flogger.GoogleLogger;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigDef.Type;
+
+/** Helpers for applying Kafka client properties to Pub/Sub Lite settings. */
+final class KafkaProperties {
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private KafkaProperties() {}
+
+  /**
+   * Parses a property the same way a Kafka client would. Values may be strings or already typed.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> Optional<T> get(Map<String, ?> properties, String key, Type type) {
+    Object value = properties.get(key);
+    if (value == null) return Optional.empty();
+    return Optional.of((T) ConfigDef.parseType(key, value, type));
+  }
+
+  /** Logs a warning naming the properties which have no effect on a Pub/Sub Lite client. */
+  static void warnUnsupported(Map<String, ?> properties, Set<String> supported, String client) {
+    Set<String> unsupported =
+        properties.keySet().stream()
+            .filter(key -> !supported.contains(key))
+            .collect(ImmutableSortedSet.toImmutableSortedSet(Comparator.naturalOrder()));
+    if (unsupported.isEmpty()) return;
+    logger.atWarning().log(
+        "The following properties are not supported by the Pub/Sub Lite %s and will be ignored: %s",
+        client, unsupported);
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.api.core.ApiFuture;
+import org.apache.kafka.clients.consumer.Consumer;
+
+/**
+ * A Consumer which can notify callers when records are available, so that they need not block a
+ * thread in poll. The instantiateNotifying methods of {@link ConsumerSettings} return consumers of
+ * this type.
+ *
+ * <p>This is the building block for adapting a consumer to a reactive streams publisher: once the
+ * future returned by {@link #onRecordsAvailable} completes, poll with a zero timeout returns
+ * without blocking. Downstream demand can be bounded with {@code max.poll.records}, and pausing the
+ * assigned partitions while there is no demand stops pulling messages, so the partitions stop
+ * returning flow control tokens to the server once their buffers are full. Records can be
+ * acknowledged with commitAsync.
+ */
+public interface NotifyingConsumer<K, V> extends Consumer<K, V> {
+  /**
+   * Returns a future which completes once a poll may return records without waiting, the set of
+   * assigned partitions changes or wakeup is called. The future may also complete spuriously, so
+   * callers should poll and then call this again if no records were returned.
+   *
+   * <p>This must not be called concurrently with a poll with a non-zero timeout.
+   *
+   * @throws IllegalStateException if the consumer is not subscribed to a topic or assigned
+   *     partitions.
+   */
+  ApiFuture<Void> onRecordsAvailable();
+}
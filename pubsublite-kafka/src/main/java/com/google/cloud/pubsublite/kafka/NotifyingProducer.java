@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.api.core.ApiFuture;
+import org.apache.kafka.clients.producer.Producer;
+
+/**
+ * A Producer which can notify callers when buffer memory is available, so that they need not block
+ * a thread in send. The instantiateNotifying methods of {@link ProducerSettings} return producers
+ * of this type.
+ *
+ * <p>This is the building block for adapting a producer to a reactive streams subscriber: request
+ * more records only once {@link #onBufferAvailable} completes, so that sending them does not block.
+ */
+public interface NotifyingProducer<K, V> extends Producer<K, V> {
+  /**
+   * Returns a future which completes once at least the given number of bytes of buffer memory are
+   * available. The bytes are not reserved, so a concurrent send may use them first. Pending futures
+   * do not hold up sends.
+   *
+   * <p>The future fails with a {@link org.apache.kafka.common.errors.RecordTooLargeException} if
+   * bytes exceeds the total buffer memory.
+   */
+  ApiFuture<Void> onBufferAvailable(long bytes);
+}
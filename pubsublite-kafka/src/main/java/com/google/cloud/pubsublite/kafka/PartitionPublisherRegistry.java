@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.cloud.pubsublite.MessageMetadata;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.internal.Publisher;
+import com.google.cloud.pubsublite.internal.wire.PartitionPublisherFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records the per-partition publishers created by a routing publisher, so that records can be
+ * published to a chosen partition.
+ *
+ * <p>The routing publisher still owns the publishers: it starts, flushes and stops them.
+ */
+class PartitionPublisherRegistry implements PartitionPublisherFactory {
+  private final PartitionPublisherFactory factory;
+  private final Map<Partition, Publisher<MessageMetadata>> publishers = new ConcurrentHashMap<>();
+
+  private final Lock lock = new ReentrantLock();
+  // Signalled whenever a publisher is created.
+  private final Condition created = lock.newCondition();
+
+  PartitionPublisherRegistry(PartitionPublisherFactory factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public Publisher<MessageMetadata> newPublisher(Partition partition) throws ApiException {
+    Publisher<MessageMetadata> publisher = factory.newPublisher(partition);
+    publishers.put(partition, publisher);
+    lock.lock();
+    try {
+      created.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    return publisher;
+  }
+
+  /**
+   * The publisher for the partition. If the routing publisher has not created it yet, which happens
+   * when the partition count was read elsewhere first, waits up to timeout for it to catch up.
+   * Returns empty if it has not created the publisher by then.
+   */
+  Optional<Publisher<MessageMetadata>> get(Partition partition, Duration timeout)
+      throws InterruptedException {
+    Publisher<MessageMetadata> publisher = publishers.get(partition);
+    if (publisher != null) return Optional.of(publisher);
+    long remainingNanos = timeout.toNanos();
+    lock.lock();
+    try {
+      while ((publisher = publishers.get(partition)) == null) {
+        if (remainingNanos <= 0) return Optional.empty();
+        remainingNanos = created.awaitNanos(remainingNanos);
+      }
+      return Optional.of(publisher);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    factory.close();
+  }
+}
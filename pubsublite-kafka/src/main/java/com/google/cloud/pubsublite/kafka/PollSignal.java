@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A reusable signal used to wake a poller when messages may be available or the consumer state
+ * changed.
+ *
+ * <p>Unlike waiting on a set of futures, waiting on this signal does not register a callback, so a
+ * consumer which polls in a tight loop does not accumulate listeners.
+ */
+final class PollSignal {
+  private final Lock lock = new ReentrantLock();
+  private final Condition signalledCondition = lock.newCondition();
+
+  private boolean signalled = false;
+  // Completed by the next signal, if a caller is waiting without blocking.
+  private Optional<SettableApiFuture<Void>> nextSignal = Optional.empty();
+
+  /** Wakes the current or next call to await, and completes the future from onSignal. */
+  void signal() {
+    Optional<SettableApiFuture<Void>> toComplete;
+    lock.lock();
+    try {
+      signalled = true;
+      signalledCondition.signalAll();
+      toComplete = nextSignal;
+      nextSignal = Optional.empty();
+    } finally {
+      lock.unlock();
+    }
+    // Complete outside the lock, as listeners run inline.
+    toComplete.ifPresent(future -> future.set(null));
+  }
+
+  /**
+   * Returns a future which completes once the signal is set, which is immediately if it is set
+   * already. Repeated calls return the same future until it completes.
+   */
+  ApiFuture<Void> onSignal() {
+    lock.lock();
+    try {
+      if (signalled) return ApiFutures.immediateFuture(null);
+      if (!nextSignal.isPresent()) nextSignal = Optional.of(SettableApiFuture.create());
+      return nextSignal.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Clears any previous signal. State must be re-checked after calling this. */
+  void reset() {
+    lock.lock();
+    try {
+      signalled = false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the signal is set or the timeout elapses.
+   *
+   * @return whether the signal was set.
+   */
+  boolean await(Duration timeout) throws InterruptedException {
+    long remainingNanos = MILLISECONDS.toNanos(timeout.toMillis());
+    lock.lock();
+    try {
+      while (!signalled) {
+        if (remainingNanos <= 0) {
+          return false;
+        }
+        remainingNanos = signalledCondition.awaitNanos(remainingNanos);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.cloud.pubsublite.TopicPath;
+import com.google.cloud.pubsublite.proto.MessagePublishRequest;
+import com.google.cloud.pubsublite.proto.PubSubMessage;
+import com.google.cloud.pubsublite.proto.PublishRequest;
+import com.google.cloud.pubsublite.proto.PublishResponse;
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Gauge;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.CumulativeSum;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Meter;
+import org.apache.kafka.common.utils.Time;
+
+/**
+ * The metrics recorded by a producer. Metrics use the names and groups of the equivalent
+ * KafkaProducer metrics, so that existing dashboards and reporters work unchanged.
+ *
+ * <p>Each publish request sent to Pub/Sub Lite carries one batch for one partition, so batch-size
+ * and records-per-request describe the same requests.
+ */
+class ProducerMetrics implements AutoCloseable {
+  static final String PRODUCER_GROUP = "producer-metrics";
+  static final String TOPIC_GROUP = "producer-topic-metrics";
+
+  private final Metrics metrics;
+  private final Time time = Time.SYSTEM;
+
+  private final Sensor recordsSent;
+  private final Sensor bytesSent;
+  private final Sensor recordErrors;
+  private final Sensor requestLatency;
+  private final Sensor batchSize;
+  private final Sensor recordsPerRequest;
+  private final Sensor flushTime;
+  private final Sensor bufferWaitTime;
+  private final Sensor bufferExhausted;
+
+  ProducerMetrics(Metrics metrics, TopicPath topic) {
+    this.metrics = metrics;
+    this.recordsSent = metrics.sensor("records-sent");
+    recordsSent.add(
+        new Meter(
+            metrics.metricName(
+                "record-send-rate",
+                PRODUCER_GROUP,
+                "The average number of records sent per second."),
+            metrics.metricName(
+                "record-send-total", PRODUCER_GROUP, "The total number of records sent.")));
+    Map<String, String> topicTags = ImmutableMap.of("topic", topic.toString());
+    this.bytesSent = metrics.sensor("bytes-sent");
+    bytesSent.add(
+        new Meter(
+            metrics.metricName(
+                "byte-rate",
+                TOPIC_GROUP,
+                "The average number of bytes sent per second for a topic.",
+                topicTags),
+            metrics.metricName(
+                "byte-total",
+                TOPIC_GROUP,
+                "The total number of bytes sent for a topic.",
+                topicTags)));
+    this.recordErrors = metrics.sensor("record-errors");
+    recordErrors.add(
+        new Meter(
+            metrics.metricName(
+                "record-error-rate",
+                PRODUCER_GROUP,
+                "The average per-second number of record sends that resulted in errors."),
+            metrics.metricName(
+                "record-error-total",
+                PRODUCER_GROUP,
+                "The total number of record sends that resulted in errors.")));
+    this.requestLatency = metrics.sensor("request-latency");
+    requestLatency.add(
+        metrics.metricName(
+            "request-latency-avg", PRODUCER_GROUP, "The average request latency in ms."),
+        new Avg());
+    requestLatency.add(
+        metrics.metricName(
+            "request-latency-max", PRODUCER_GROUP, "The maximum request latency in ms."),
+        new Max());
+    this.batchSize = metrics.sensor("batch-size");
+    batchSize.add(
+        metrics.metricName(
+            "batch-size-avg",
+            PRODUCER_GROUP,
+            "The average number of bytes sent per partition per request."),
+        new Avg());
+    batchSize.add(
+        metrics.metricName(
+            "batch-size-max",
+            PRODUCER_GROUP,
+            "The max number of bytes sent per partition per request."),
+        new Max());
+    this.recordsPerRequest = metrics.sensor("records-per-request");
+    recordsPerRequest.add(
+        metrics.metricName(
+            "records-per-request-avg",
+            PRODUCER_GROUP,
+            "The average number of records per request."),
+        new Avg());
+    this.flushTime = metrics.sensor("flush-time");
+    flushTime.add(
+        metrics.metricName(
+            "flush-time-ns-total",
+            PRODUCER_GROUP,
+            "Total time producer has spent in flush in nanoseconds."),
+        new CumulativeSum());
+    this.bufferWaitTime = metrics.sensor("bufferpool-wait-time");
+    bufferWaitTime.add(
+        metrics.metricName(
+            "bufferpool-wait-time-ns-total",
+            PRODUCER_GROUP,
+            "The total time in nanoseconds an appender waits for space allocation."),
+        new CumulativeSum());
+    this.bufferExhausted = metrics.sensor("buffer-exhausted-records");
+    bufferExhausted.add(
+        new Meter(
+            metrics.metricName(
+                "buffer-exhausted-rate",
+                PRODUCER_GROUP,
+                "The average per-second number of record sends that are dropped due to buffer"
+                    + " exhaustion."),
+            metrics.metricName(
+                "buffer-exhausted-total",
+                PRODUCER_GROUP,
+                "The total number of record sends that are dropped due to buffer exhaustion.")));
+  }
+
+  /** Registers gauges reporting the total and available bytes of the buffer. */
+  void addBufferMetrics(BufferMemory buffer) {
+    metrics.addMetric(
+        metrics.metricName(
+            "buffer-total-bytes",
+            PRODUCER_GROUP,
+            "The maximum amount of buffer memory the client can use."),
+        (Gauge<Long>) (config, nowMs) -> buffer.totalBytes());
+    metrics.addMetric(
+        metrics.metricName(
+            "buffer-available-bytes",
+            PRODUCER_GROUP,
+            "The total amount of buffer memory that is not being used."),
+        (Gauge<Long>) (config, nowMs) -> buffer.availableBytes());
+  }
+
+  Map<MetricName, ? extends Metric> metrics() {
+    return metrics.metrics();
+  }
+
+  void recordSend(int bytes) {
+    long nowMs = time.milliseconds();
+    recordsSent.record(1, nowMs);
+    bytesSent.record(bytes, nowMs);
+  }
+
+  void recordError() {
+    recordErrors.record();
+  }
+
+  void recordFlush(long nanos) {
+    flushTime.record(nanos);
+  }
+
+  void recordBufferWait(long nanos) {
+    bufferWaitTime.record(nanos);
+  }
+
+  void recordBufferExhausted() {
+    bufferExhausted.record();
+  }
+
+  private void recordRequest(MessagePublishRequest request) {
+    long bytes = 0;
+    for (PubSubMessage message : request.getMessagesList()) {
+      bytes += message.getSerializedSize();
+    }
+    long nowMs = time.milliseconds();
+    batchSize.record(bytes, nowMs);
+    recordsPerRequest.record(request.getMessagesCount(), nowMs);
+  }
+
+  /**
+   * Creates a publish stream with the given factory, recording the batches sent on it and the
+   * latency until each is acknowledged.
+   */
+  ClientStream<PublishRequest> instrument(
+      ResponseObserver<PublishResponse> responseObserver,
+      Function<ResponseObserver<PublishResponse>, ClientStream<PublishRequest>> streamFactory) {
+    // The server acknowledges the message publish requests on a stream in order.
+    Queue<Long> sendTimesNanos = new ConcurrentLinkedQueue<>();
+    ClientStream<PublishRequest> stream =
+        streamFactory.apply(
+            new ResponseObserver<PublishResponse>() {
+              @Override
+              public void onStart(StreamController controller) {
+                responseObserver.onStart(controller);
+              }
+
+              @Override
+              public void onResponse(PublishResponse response) {
+                if (response.hasMessageResponse()) {
+                  Long sentNanos = sendTimesNanos.poll();
+                  if (sentNanos != null) {
+                    requestLatency.record((time.nanoseconds() - sentNanos) / 1_000_000.0);
+                  }
+                }
+                responseObserver.onResponse(response);
+              }
+
+              @Override
+              public void onError(Throwable t) {
+                responseObserver.onError(t);
+              }
+
+              @Override
+              public void onComplete() {
+                responseObserver.onComplete();
+              }
+            });
+    return new ClientStream<PublishRequest>() {
+      @Override
+      public void send(PublishRequest request) {
+        if (request.hasMessagePublishRequest()) {
+          recordRequest(request.getMessagePublishRequest());
+          sendTimesNanos.add(time.nanoseconds());
+        }
+        stream.send(request);
+      }
+
+      @Override
+      public void closeSendWithError(Throwable t) {
+        stream.closeSendWithError(t);
+      }
+
+      @Override
+      public void closeSend() {
+        stream.closeSend();
+      }
+
+      @Override
+      public boolean isSendReady() {
+        return stream.isSendReady();
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    metrics.close();
+  }
+}
@@ -20,7 +20,9 @@ import static com.google.cloud.pubsublite.cloudpubsub.PublisherSettings.DEFAULT_
 import static com.google.cloud.pubsublite.internal.ExtractStatus.toCanonical;
 import static com.google.cloud.pubsublite.internal.wire.ServiceClients.addDefaultSettings;
 import static com.google.cloud.pubsublite.internal.wire.ServiceClients.getCallContext;
+import static com.google.common.base.Preconditions.checkArgument;
 
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.rpc.ApiCallContext;
 import com.google.api.gax.rpc.ApiException;
 import com.google.auto.value.AutoValue;
@@ -36,19 +38,88 @@ import com.google.cloud.pubsublite.internal.wire.PubsubContext;
 import com.google.cloud.pubsublite.internal.wire.PubsubContext.Framework;
 import com.google.cloud.pubsublite.internal.wire.RoutingMetadata;
 import com.google.cloud.pubsublite.internal.wire.SinglePartitionPublisherBuilder;
+import com.google.cloud.pubsublite.internal.wire.SystemExecutors;
+import com.google.cloud.pubsublite.proto.PubSubMessage;
 import com.google.cloud.pubsublite.v1.PublisherServiceClient;
 import com.google.cloud.pubsublite.v1.PublisherServiceSettings;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.apache.kafka.clients.producer.Partitioner;
 import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.config.ConfigDef.Type;
+import org.apache.kafka.common.metrics.MetricsReporter;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.ByteBufferSerializer;
+import org.apache.kafka.common.serialization.BytesSerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
 
 @AutoValue
 public abstract class ProducerSettings {
   private static final Framework FRAMEWORK = Framework.of("KAFKA_SHIM");
 
+  // The maximum number of messages and bytes the service accepts in a single publish request.
+  static final long MAX_BATCH_ELEMENT_COUNT = 1_000;
+  static final long MAX_BATCH_REQUEST_BYTES = 3_500_000;
+
+  // The defaults of the equivalent Kafka producer properties.
+  static final long DEFAULT_BUFFER_MEMORY_BYTES = 32 * 1024 * 1024;
+  static final Duration DEFAULT_MAX_BLOCK = Duration.ofSeconds(60);
+  static final Duration DEFAULT_DELIVERY_TIMEOUT = Duration.ofMinutes(2);
+
+  private static final ImmutableSet<String> SUPPORTED_KAFKA_PROPERTIES =
+      ImmutableSet.of(
+          ProducerConfig.LINGER_MS_CONFIG,
+          ProducerConfig.BATCH_SIZE_CONFIG,
+          ProducerConfig.PARTITIONER_CLASS_CONFIG,
+          ProducerConfig.BUFFER_MEMORY_CONFIG,
+          ProducerConfig.MAX_BLOCK_MS_CONFIG,
+          ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG,
+          ProducerConfig.CLIENT_ID_CONFIG,
+          ProducerConfig.METRIC_REPORTER_CLASSES_CONFIG);
+
   // Required parameters.
   abstract TopicPath topicPath();
 
+  // Optional parameters.
+  abstract boolean zeroCopy();
+
+  abstract BatchingSettings batchingSettings();
+
+  abstract Optional<Partitioner> partitioner();
+
+  abstract boolean kafkaPartitioning();
+
+  abstract boolean stickyPartitioning();
+
+  abstract long bufferMemoryBytes();
+
+  abstract Duration maxBlock();
+
+  abstract Duration deliveryTimeout();
+
+  abstract Optional<String> clientId();
+
+  abstract ImmutableList<MetricsReporter> metricsReporters();
+
   public static Builder newBuilder() {
-    return new AutoValue_ProducerSettings.Builder();
+    return new AutoValue_ProducerSettings.Builder()
+        .setZeroCopy(false)
+        .setBatchingSettings(DEFAULT_BATCHING_SETTINGS)
+        .setKafkaPartitioning(false)
+        .setStickyPartitioning(false)
+        .setBufferMemoryBytes(DEFAULT_BUFFER_MEMORY_BYTES)
+        .setMaxBlock(DEFAULT_MAX_BLOCK)
+        .setDeliveryTimeout(DEFAULT_DELIVERY_TIMEOUT)
+        .setMetricsReporters(ImmutableList.of());
   }
 
   @AutoValue.Builder
@@ -56,7 +127,190 @@ public abstract class ProducerSettings {
     // Required parameters.
     public abstract Builder setTopicPath(TopicPath path);
 
-    public abstract ProducerSettings build();
+    // Optional parameters.
+    /**
+     * Whether sent records are wrapped instead of copied.
+     *
+     * <p>When this is set, the key, value and header value arrays of a record, or the key and value
+     * arrays returned by the serializers, are referenced by the message being published instead of
+     * being copied into it. The caller must not modify these arrays until the future returned by
+     * send completes.
+     */
+    public abstract Builder setZeroCopy(boolean zeroCopy);
+
+    /**
+     * The thresholds at which messages for a partition are sent in a single publish request.
+     *
+     * <p>The element count threshold may be at most 1000 and the request byte threshold at most 3.5
+     * MB, which are the limits of a publish request. The delay threshold must be positive. Defaults
+     * to the batching settings of the Pub/Sub Lite publisher client.
+     */
+    public abstract Builder setBatchingSettings(BatchingSettings batchingSettings);
+
+    /**
+     * A Kafka Partitioner which chooses the partition of records that do not set one. The
+     * partitioner is closed when the producer is closed.
+     *
+     * <p>Records which set a partition are always published to it.
+     */
+    public abstract Builder setPartitioner(Partitioner partitioner);
+
+    /**
+     * Whether records with a key, which do not set a partition and are not routed by a Partitioner,
+     * are routed by the murmur2 hash of their key as in Kafka. Keys are then mapped to the same
+     * partitions as by a Kafka producer on a topic with as many partitions.
+     *
+     * <p>Otherwise, the Pub/Sub Lite publisher routes these records using a different hash.
+     * Defaults to false.
+     */
+    public abstract Builder setKafkaPartitioning(boolean kafkaPartitioning);
+
+    /**
+     * Whether records without a key, which do not set a partition and are not routed by a
+     * Partitioner, are sent to one partition until its batch reaches the batching thresholds, as
+     * with Kafka's built-in partitioner. This sends fewer and fuller publish requests than the
+     * Pub/Sub Lite publisher, which spreads these records across partitions one at a time.
+     *
+     * <p>Records with an empty key count as keyless unless Kafka partitioning is enabled. Defaults
+     * to false.
+     */
+    public abstract Builder setStickyPartitioning(boolean stickyPartitioning);
+
+    /**
+     * The total bytes of messages which may be waiting to be published. When this is exhausted,
+     * send blocks until earlier messages finish publishing. Defaults to 32 MiB, as in Kafka.
+     */
+    public abstract Builder setBufferMemoryBytes(long bufferMemoryBytes);
+
+    /**
+     * The maximum time send blocks waiting for buffer memory before failing the send with a {@link
+     * org.apache.kafka.clients.producer.BufferExhaustedException}. If zero, send fails immediately
+     * when buffer memory is exhausted. Defaults to 60 seconds, as in Kafka.
+     */
+    public abstract Builder setMaxBlock(Duration maxBlock);
+
+    /**
+     * The maximum time after send returns until its future completes. Sends which have not been
+     * acknowledged by then fail with a {@link org.apache.kafka.common.errors.TimeoutException},
+     * though their messages may still be published later. Must be positive. Defaults to 2 minutes,
+     * as in Kafka.
+     */
+    public abstract Builder setDeliveryTimeout(Duration deliveryTimeout);
+
+    /**
+     * The client id, equivalent to Kafka's client.id, which tags every metric of the producer. A
+     * unique id is generated for each producer if this is not set.
+     */
+    public abstract Builder setClientId(String clientId);
+
+    /**
+     * Reporters which are notified of the producer's metrics in addition to JMX, equivalent to
+     * Kafka's metric.reporters. The reporters must already be configured.
+     */
+    public abstract Builder setMetricsReporters(List<MetricsReporter> reporters);
+
+    /**
+     * Applies Kafka producer properties to these settings.
+     *
+     * <p>{@code linger.ms} and {@code batch.size} override the corresponding thresholds of the
+     * batching settings set so far, as described in {@link
+     * ProducerSettings#batchingSettingsFromKafkaProperties}. {@code partitioner.class} sets a
+     * partitioner, which is configured with the properties. {@code buffer.memory}, {@code
+     * max.block.ms} and {@code delivery.timeout.ms} set the buffer memory, maximum block time and
+     * delivery timeout. {@code client.id} sets the client id. {@code metric.reporters} instantiates
+     * the named reporters and configures them with these properties. A warning is logged for every
+     * other property, as it has no effect.
+     */
+    public Builder setKafkaProperties(Map<String, ?> properties) {
+      KafkaProperties.warnUnsupported(properties, SUPPORTED_KAFKA_PROPERTIES, "producer");
+      KafkaProperties.<Class<?>>get(properties, ProducerConfig.PARTITIONER_CLASS_CONFIG, Type.CLASS)
+          .ifPresent(
+              partitionerClass -> {
+                Partitioner partitioner = Utils.newInstance(partitionerClass, Partitioner.class);
+                partitioner.configure(properties);
+                setPartitioner(partitioner);
+              });
+      KafkaProperties.<Long>get(properties, ProducerConfig.BUFFER_MEMORY_CONFIG, Type.LONG)
+          .ifPresent(this::setBufferMemoryBytes);
+      KafkaProperties.<Long>get(properties, ProducerConfig.MAX_BLOCK_MS_CONFIG, Type.LONG)
+          .ifPresent(maxBlockMs -> setMaxBlock(Duration.ofMillis(maxBlockMs)));
+      KafkaProperties.<Integer>get(properties, ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, Type.INT)
+          .ifPresent(timeoutMs -> setDeliveryTimeout(Duration.ofMillis(timeoutMs)));
+      KafkaProperties.<String>get(properties, ProducerConfig.CLIENT_ID_CONFIG, Type.STRING)
+          .ifPresent(this::setClientId);
+      KafkaProperties.<List<String>>get(
+              properties, ProducerConfig.METRIC_REPORTER_CLASSES_CONFIG, Type.LIST)
+          .ifPresent(
+              classNames -> setMetricsReporters(KafkaMetrics.newReporters(classNames, properties)));
+      return setBatchingSettings(applyBatchingProperties(batchingSettings(), properties));
+    }
+
+    abstract BatchingSettings batchingSettings();
+
+    abstract ProducerSettings autoBuild();
+
+    public ProducerSettings build() {
+      ProducerSettings settings = autoBuild();
+      BatchingSettings batching = settings.batchingSettings();
+      checkArgument(
+          batching.getElementCountThreshold() != null
+              && batching.getElementCountThreshold() > 0
+              && batching.getElementCountThreshold() <= MAX_BATCH_ELEMENT_COUNT,
+          "The element count threshold must be between 1 and %s.",
+          MAX_BATCH_ELEMENT_COUNT);
+      checkArgument(
+          batching.getRequestByteThreshold() != null
+              && batching.getRequestByteThreshold() > 0
+              && batching.getRequestByteThreshold() <= MAX_BATCH_REQUEST_BYTES,
+          "The request byte threshold must be between 1 and %s.",
+          MAX_BATCH_REQUEST_BYTES);
+      checkArgument(
+          batching.getDelayThreshold() != null
+              && !batching.getDelayThreshold().isNegative()
+              && !batching.getDelayThreshold().isZero(),
+          "The delay threshold must be positive.");
+      checkArgument(settings.bufferMemoryBytes() > 0, "The buffer memory must be positive.");
+      checkArgument(!settings.maxBlock().isNegative(), "The max block time must not be negative.");
+      checkArgument(
+          !settings.deliveryTimeout().isNegative() && !settings.deliveryTimeout().isZero(),
+          "The delivery timeout must be positive.");
+      return settings;
+    }
+  }
+
+  /**
+   * Derives batching settings from Kafka producer properties.
+   *
+   * <p>{@code linger.ms} sets the delay threshold and {@code batch.size} the request byte
+   * threshold, capped at the limits of a publish request. As publishing always goes through a
+   * batcher, a {@code linger.ms} of 0 is treated as 1 millisecond. Thresholds without a
+   * corresponding property keep their default values.
+   */
+  public static BatchingSettings batchingSettingsFromKafkaProperties(Map<String, ?> properties) {
+    return applyBatchingProperties(DEFAULT_BATCHING_SETTINGS, properties);
+  }
+
+  // Overrides the thresholds of the given batching settings which have a corresponding property.
+  private static BatchingSettings applyBatchingProperties(
+      BatchingSettings settings, Map<String, ?> properties) {
+    BatchingSettings.Builder builder = settings.toBuilder();
+    KafkaProperties.<Long>get(properties, ProducerConfig.LINGER_MS_CONFIG, Type.LONG)
+        .ifPresent(
+            linger -> {
+              checkArgument(
+                  linger >= 0, "%s must not be negative.", ProducerConfig.LINGER_MS_CONFIG);
+              builder.setDelayThreshold(org.threeten.bp.Duration.ofMillis(Math.max(1, linger)));
+            });
+    KafkaProperties.<Integer>get(properties, ProducerConfig.BATCH_SIZE_CONFIG, Type.INT)
+        .ifPresent(
+            size -> {
+              checkArgument(
+                  size >= 0, "%s must not be negative.", ProducerConfig.BATCH_SIZE_CONFIG);
+              // As in Kafka, a batch size of 0 disables batching.
+              builder.setRequestByteThreshold(
+                  Math.max(1, Math.min((long) size, MAX_BATCH_REQUEST_BYTES)));
+            });
+    return builder.build();
   }
 
   private AdminClient newAdminClient() {
@@ -74,7 +328,7 @@ public abstract class ProducerSettings {
     }
   }
 
-  private PartitionPublisherFactory getPartitionPublisherFactory() {
+  private PartitionPublisherFactory getPartitionPublisherFactory(ProducerMetrics metrics) {
     PublisherServiceClient client = newServiceClient();
     return new PartitionPublisherFactory() {
       @Override
@@ -83,14 +337,16 @@ public abstract class ProducerSettings {
             SinglePartitionPublisherBuilder.newBuilder()
                 .setTopic(topicPath())
                 .setPartition(partition)
-                .setBatchingSettings(DEFAULT_BATCHING_SETTINGS)
+                .setBatchingSettings(batchingSettings())
                 .setStreamFactory(
                     responseStream -> {
                       ApiCallContext context =
                           getCallContext(
                               PubsubContext.of(FRAMEWORK),
                               RoutingMetadata.of(topicPath(), partition));
-                      return client.publishCallable().splitCall(responseStream, context);
+                      return metrics.instrument(
+                          responseStream,
+                          observer -> client.publishCallable().splitCall(observer, context));
                     });
         return singlePartitionBuilder.build();
       }
@@ -103,13 +359,96 @@ public abstract class ProducerSettings {
   }
 
   public Producer<byte[], byte[]> instantiate() throws ApiException {
+    return instantiateNotifying();
+  }
+
+  /** Like {@link #instantiate()}, but returns the producer as a {@link NotifyingProducer}. */
+  public NotifyingProducer<byte[], byte[]> instantiateNotifying() throws ApiException {
+    return instantiateNotifying(new ByteArraySerializer(), new ByteArraySerializer());
+  }
+
+  /**
+   * Instantiate a producer whose record keys and values are encoded with the given serializers,
+   * which are closed when the producer is closed. The serializers must already be configured.
+   *
+   * <p>The arrays returned by the serializers are wrapped by the published message. Unless zero
+   * copy is enabled, they are copied instead for {@link ByteArraySerializer}, {@link
+   * ByteBufferSerializer} and {@link BytesSerializer}, which may return arrays the caller still
+   * holds.
+   */
+  public <K, V> Producer<K, V> instantiate(
+      Serializer<K> keySerializer, Serializer<V> valueSerializer) throws ApiException {
+    return instantiateNotifying(keySerializer, valueSerializer);
+  }
+
+  /**
+   * Like {@link #instantiate(Serializer, Serializer)}, but returns the producer as a {@link
+   * NotifyingProducer}.
+   */
+  public <K, V> NotifyingProducer<K, V> instantiateNotifying(
+      Serializer<K> keySerializer, Serializer<V> valueSerializer) throws ApiException {
+    return instantiate(keySerializer, valueSerializer, toMessage(keySerializer, valueSerializer));
+  }
+
+  // Whether a serializer may return an array the caller still holds, such as the key itself.
+  private static boolean returnsCallerArrays(Serializer<?> serializer) {
+    return serializer instanceof ByteArraySerializer
+        || serializer instanceof ByteBufferSerializer
+        || serializer instanceof BytesSerializer;
+  }
+
+  /** The transform from serialized records to the messages published for them. */
+  Function<ProducerRecord<byte[], byte[]>, PubSubMessage> toMessage(
+      Serializer<?> keySerializer, Serializer<?> valueSerializer) {
+    if (zeroCopy()) return RecordTransforms::toMessageZeroCopy;
+    return RecordTransforms.toMessageFromSerialized(
+        returnsCallerArrays(keySerializer), returnsCallerArrays(valueSerializer));
+  }
+
+  private <K, V> NotifyingProducer<K, V> instantiate(
+      Serializer<K> keySerializer,
+      Serializer<V> valueSerializer,
+      Function<ProducerRecord<byte[], byte[]>, PubSubMessage> toMessage)
+      throws ApiException {
+    ProducerMetrics metrics =
+        new ProducerMetrics(
+            KafkaMetrics.newMetrics(
+                "kafka.producer",
+                clientId().orElseGet(() -> KafkaMetrics.generateClientId("producer")),
+                metricsReporters()),
+            topicPath());
+    BufferMemory buffer = new BufferMemory(bufferMemoryBytes(), maxBlock());
+    metrics.addBufferMetrics(buffer);
+    PartitionPublisherRegistry partitionPublishers =
+        new PartitionPublisherRegistry(getPartitionPublisherFactory(metrics));
     PartitionCountWatchingPublisherSettings publisherSettings =
         PartitionCountWatchingPublisherSettings.newBuilder()
             .setTopic(topicPath())
             .setAdminClient(newAdminClient())
-            .setPublisherFactory(getPartitionPublisherFactory())
+            .setPublisherFactory(partitionPublishers)
             .build();
     SharedBehavior shared = new SharedBehavior(newAdminClient());
-    return new PubsubLiteProducer(publisherSettings.instantiate(), shared, topicPath());
+    return new PubsubLiteProducer<>(
+        publisherSettings.instantiate(),
+        partitionPublishers,
+        new RecordRouter(
+            topicPath(),
+            shared,
+            maxBlock(),
+            partitioner(),
+            kafkaPartitioning(),
+            stickyPartitioning()
+                ? Optional.of(new StickyPartitioner(batchingSettings(), Ticker.systemTicker()))
+                : Optional.empty()),
+        shared,
+        topicPath(),
+        keySerializer,
+        valueSerializer,
+        toMessage,
+        buffer,
+        maxBlock(),
+        new DeliveryTimeouts(
+            deliveryTimeout(), Ticker.systemTicker(), SystemExecutors.getAlarmExecutor()),
+        metrics);
   }
 }
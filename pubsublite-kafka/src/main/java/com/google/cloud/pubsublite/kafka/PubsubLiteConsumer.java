@@ -53,7 +53,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
@@ -72,42 +71,52 @@ import org.apache.kafka.common.Uuid;
  *
  * <p>This also filters methods that Pub/Sub Lite will not implement.
  */
-class PubsubLiteConsumer implements Consumer<byte[], byte[]> {
+class PubsubLiteConsumer<K, V> implements NotifyingConsumer<K, V> {
   private static final Duration INFINITE_DURATION = Duration.ofMillis(Long.MAX_VALUE);
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
   private final SubscriptionPath subscriptionPath;
   private final TopicPath topicPath;
   private final SharedBehavior shared;
-  private final ConsumerFactory consumerFactory;
+  private final ConsumerFactory<K, V> consumerFactory;
   private final AssignerFactory assignerFactory;
-  private final CursorClient cursorClient;
   private final TopicStatsClient topicStatsClient;
+  private final HeadOffsetCache headOffsets;
+  private final CommittedOffsetCache committedOffsets;
+  private final ConsumerMetrics metrics;
   private final List<AutoCloseable> toClose;
   private Optional<Assigner> assigner = Optional.empty();
-  private Optional<SingleSubscriptionConsumer> consumer = Optional.empty();
+  private Optional<SingleSubscriptionConsumer<K, V>> consumer = Optional.empty();
 
   PubsubLiteConsumer(
       SubscriptionPath subscriptionPath,
       TopicPath topicPath,
       SharedBehavior shared,
-      ConsumerFactory consumerFactory,
+      ConsumerFactory<K, V> consumerFactory,
       AssignerFactory assignerFactory,
       CursorClient cursorClient,
       TopicStatsClient topicStatsClient,
+      HeadOffsetCache headOffsets,
+      CommittedOffsetCache committedOffsets,
+      ConsumerMetrics metrics,
       AutoCloseable... resources) {
     this.subscriptionPath = subscriptionPath;
     this.topicPath = topicPath;
     this.shared = shared;
     this.consumerFactory = consumerFactory;
     this.assignerFactory = assignerFactory;
-    this.cursorClient = cursorClient;
     this.topicStatsClient = topicStatsClient;
+    this.headOffsets = headOffsets;
+    this.committedOffsets = committedOffsets;
+    this.metrics = metrics;
     this.toClose =
         ImmutableList.<AutoCloseable>builder()
             .add(resources)
+            .add(committedOffsets)
             .add(cursorClient)
+            .add(headOffsets)
             .add(topicStatsClient)
             .add(shared)
+            .add(metrics)
             .build();
   }
 
@@ -115,7 +124,7 @@ class PubsubLiteConsumer implements Consumer<byte[], byte[]> {
     return new TopicPartition(topicPath.toString(), (int) partition.value());
   }
 
-  private SingleSubscriptionConsumer requireValidConsumer() {
+  private SingleSubscriptionConsumer<K, V> requireValidConsumer() {
     if (!consumer.isPresent()) {
       throw new IllegalStateException("Neither subscribe nor assign has been called.");
     }
@@ -259,15 +268,20 @@ class PubsubLiteConsumer implements Consumer<byte[], byte[]> {
   }
 
   @Override
-  public ConsumerRecords<byte[], byte[]> poll(long l) {
+  public ConsumerRecords<K, V> poll(long l) {
     return poll(Duration.ofMillis(l));
   }
 
   @Override
-  public ConsumerRecords<byte[], byte[]> poll(Duration timeout) {
+  public ConsumerRecords<K, V> poll(Duration timeout) {
     return requireValidConsumer().poll(timeout);
   }
 
+  @Override
+  public ApiFuture<Void> onRecordsAvailable() {
+    return requireValidConsumer().onData();
+  }
+
   Map<Partition, Offset> checkAndTransformOffsets(Map<TopicPartition, OffsetAndMetadata> map) {
     ImmutableMap.Builder<Partition, Offset> output = ImmutableMap.builder();
     try {
@@ -432,9 +446,7 @@ class PubsubLiteConsumer implements Consumer<byte[], byte[]> {
         partitions.stream().map(this::checkTopicGetPartition).collect(Collectors.toSet());
     try {
       Map<Partition, Offset> full_map =
-          cursorClient
-              .listPartitionCursors(subscriptionPath)
-              .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+          committedOffsets.get().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
       ImmutableMap.Builder<TopicPartition, OffsetAndMetadata> output = ImmutableMap.builder();
       targets.forEach(
           partition ->
@@ -449,7 +461,7 @@ class PubsubLiteConsumer implements Consumer<byte[], byte[]> {
 
   @Override
   public Map<MetricName, ? extends Metric> metrics() {
-    return ImmutableMap.of();
+    return metrics.metrics();
   }
 
   @Override
@@ -584,19 +596,26 @@ class PubsubLiteConsumer implements Consumer<byte[], byte[]> {
 
   @Override
   public Set<TopicPartition> paused() {
-    return ImmutableSet.of();
+    if (!consumer.isPresent()) return ImmutableSet.of();
+    return consumer.get().paused().stream()
+        .map(this::toTopicPartition)
+        .collect(Collectors.toSet());
+  }
+
+  private Set<Partition> checkTopicGetPartitions(Collection<TopicPartition> collection) {
+    return collection.stream().map(this::checkTopicGetPartition).collect(Collectors.toSet());
   }
 
   @Override
   public void pause(Collection<TopicPartition> collection) {
-    logger.atWarning().log(
-        "Calling pause on a Pub/Sub Lite Consumer is a no-op. Configure the amount of outstanding bytes and messages instead.");
+    if (collection.isEmpty()) return;
+    requireValidConsumer().pause(checkTopicGetPartitions(collection));
   }
 
   @Override
   public void resume(Collection<TopicPartition> collection) {
-    logger.atWarning().log(
-        "Calling resume on a Pub/Sub Lite Consumer is a no-op. Configure the amount of outstanding bytes and messages instead.");
+    if (collection.isEmpty()) return;
+    requireValidConsumer().resume(checkTopicGetPartitions(collection));
   }
 
   @Override
@@ -611,8 +630,21 @@ class PubsubLiteConsumer implements Consumer<byte[], byte[]> {
 
   @Override
   public OptionalLong currentLag(TopicPartition topicPartition) {
-    logger.atWarning().log("Calling currentLag on a Pub/Sub Lite Consumer always returns empty.");
-    return OptionalLong.empty();
+    Partition partition = checkTopicGetPartition(topicPartition);
+    SingleSubscriptionConsumer<K, V> current = requireValidConsumer();
+    Set<Partition> assignment = current.assignment();
+    if (!assignment.contains(partition)) {
+      throw new IllegalStateException("No current assignment for partition " + topicPartition);
+    }
+    headOffsets.retainAll(assignment);
+    // The head offset is read from the cache, so this never blocks on an RPC. Lag is unknown until
+    // the first head offset is fetched and a message has been received from the partition.
+    Optional<Long> head = headOffsets.get(partition);
+    Optional<Long> position = current.position(partition);
+    if (!head.isPresent() || !position.isPresent()) {
+      return OptionalLong.empty();
+    }
+    return OptionalLong.of(Math.max(0, head.get() - position.get()));
   }
 
   @Override
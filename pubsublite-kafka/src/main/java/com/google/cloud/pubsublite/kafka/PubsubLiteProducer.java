@@ -26,33 +26,39 @@ import com.google.api.core.ApiService.Listener;
 import com.google.api.core.ApiService.State;
 import com.google.api.gax.rpc.ApiException;
 import com.google.cloud.pubsublite.MessageMetadata;
+import com.google.cloud.pubsublite.Partition;
 import com.google.cloud.pubsublite.TopicPath;
 import com.google.cloud.pubsublite.internal.ExtractStatus;
 import com.google.cloud.pubsublite.internal.Publisher;
-import com.google.common.collect.ImmutableMap;
+import com.google.cloud.pubsublite.proto.PubSubMessage;
 import com.google.common.flogger.GoogleLogger;
 import com.google.common.util.concurrent.MoreExecutors;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.BufferExhaustedException;
 import org.apache.kafka.clients.producer.Callback;
-import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.Metric;
 import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.RecordTooLargeException;
 import org.apache.kafka.common.errors.UnsupportedVersionException;
+import org.apache.kafka.common.serialization.Serializer;
 
-class PubsubLiteProducer implements Producer<byte[], byte[]> {
-  private static final Duration INFINITE_DURATION = Duration.ofMillis(Long.MAX_VALUE);
+class PubsubLiteProducer<K, V> implements NotifyingProducer<K, V> {
   private static final UnsupportedVersionException NO_TRANSACTIONS_EXCEPTION =
       new UnsupportedVersionException(
           "Pub/Sub Lite is a non-transactional system and does not support producer transactions.");
@@ -60,13 +66,43 @@ class PubsubLiteProducer implements Producer<byte[], byte[]> {
 
   private final SharedBehavior shared;
   private final Publisher<MessageMetadata> publisher;
+  private final PartitionPublisherRegistry partitionPublishers;
+  private final RecordRouter router;
   private final TopicPath topicPath;
+  private final Serializer<K> keySerializer;
+  private final Serializer<V> valueSerializer;
+  private final Function<ProducerRecord<byte[], byte[]>, PubSubMessage> toMessage;
+  private final BufferMemory buffer;
+  // The longest a send may block, across waiting for metadata, buffer memory and publishers.
+  private final long maxBlockNanos;
+  private final DeliveryTimeouts deliveryTimeouts;
+  private final ProducerMetrics metrics;
 
   PubsubLiteProducer(
-      Publisher<MessageMetadata> publisher, SharedBehavior shared, TopicPath topicPath) {
+      Publisher<MessageMetadata> publisher,
+      PartitionPublisherRegistry partitionPublishers,
+      RecordRouter router,
+      SharedBehavior shared,
+      TopicPath topicPath,
+      Serializer<K> keySerializer,
+      Serializer<V> valueSerializer,
+      Function<ProducerRecord<byte[], byte[]>, PubSubMessage> toMessage,
+      BufferMemory buffer,
+      Duration maxBlock,
+      DeliveryTimeouts deliveryTimeouts,
+      ProducerMetrics metrics) {
     this.publisher = publisher;
+    this.partitionPublishers = partitionPublishers;
+    this.router = router;
     this.shared = shared;
     this.topicPath = topicPath;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.toMessage = toMessage;
+    this.buffer = buffer;
+    this.maxBlockNanos = MILLISECONDS.toNanos(maxBlock.toMillis());
+    this.deliveryTimeouts = deliveryTimeouts;
+    this.metrics = metrics;
     this.publisher.addListener(
         new Listener() {
           @Override
@@ -127,15 +163,96 @@ class PubsubLiteProducer implements Producer<byte[], byte[]> {
     }
   }
 
+  // The part of the max block time left to a send which started at startNanos.
+  private Duration remainingBlock(long startNanos) {
+    return Duration.ofNanos(Math.max(0, maxBlockNanos - (System.nanoTime() - startNanos)));
+  }
+
+  private ApiFuture<MessageMetadata> publish(
+      Optional<Partition> partition, PubSubMessage message, Duration timeout) {
+    if (!partition.isPresent()) {
+      return publisher.publish(message);
+    }
+    Optional<Publisher<MessageMetadata>> partitionPublisher;
+    try {
+      partitionPublisher = partitionPublishers.get(partition.get(), timeout);
+    } catch (InterruptedException e) {
+      throw new InterruptException(e);
+    }
+    if (!partitionPublisher.isPresent()) {
+      // The publisher did not learn of the partition within the max block time.
+      return ApiFutures.immediateFailedFuture(
+          new org.apache.kafka.common.errors.TimeoutException(
+              "The publisher for partition "
+                  + partition.get().value()
+                  + " was not ready within the max block time."));
+    }
+    return partitionPublisher.get().publish(message);
+  }
+
+  private void acquireBuffer(int bytes, Duration timeout) {
+    long startNanos = System.nanoTime();
+    try {
+      buffer.acquire(bytes, timeout);
+    } catch (BufferExhaustedException e) {
+      metrics.recordBufferExhausted();
+      throw e;
+    } catch (InterruptedException e) {
+      throw new InterruptException(e);
+    } finally {
+      metrics.recordBufferWait(System.nanoTime() - startNanos);
+    }
+  }
+
+  private ProducerRecord<byte[], byte[]> serialize(ProducerRecord<K, V> record) {
+    byte[] key = keySerializer.serialize(record.topic(), record.headers(), record.key());
+    byte[] value = valueSerializer.serialize(record.topic(), record.headers(), record.value());
+    return new ProducerRecord<>(
+        record.topic(), record.partition(), record.timestamp(), key, value, record.headers());
+  }
+
   @Override
-  public ApiFuture<RecordMetadata> send(ProducerRecord<byte[], byte[]> producerRecord) {
+  public ApiFuture<RecordMetadata> send(ProducerRecord<K, V> producerRecord) {
+    // As in Kafka, waiting for metadata, buffer memory and the partition's publisher shares a
+    // single max block time.
+    long startNanos = System.nanoTime();
     checkTopic(producerRecord.topic());
-    if (producerRecord.partition() != null) {
-      throw new UnsupportedOperationException(
-          "Pub/Sub Lite producers may not specify a partition in their records.");
+    ProducerRecord<byte[], byte[]> serialized = serialize(producerRecord);
+    PubSubMessage message = toMessage.apply(serialized);
+    int bytes = message.getSerializedSize();
+    Optional<Partition> partition;
+    try {
+      partition = router.route(producerRecord, serialized, bytes, remainingBlock(startNanos));
+      acquireBuffer(bytes, remainingBlock(startNanos));
+    } catch (org.apache.kafka.common.errors.TimeoutException | RecordTooLargeException e) {
+      // Metadata and buffer memory (BufferExhaustedException) timeouts fail only this record.
+      metrics.recordError();
+      return ApiFutures.immediateFailedFuture(e);
     }
-    ApiFuture<MessageMetadata> future =
-        publisher.publish(RecordTransforms.toMessage(producerRecord));
+    metrics.recordSend(bytes);
+    ApiFuture<MessageMetadata> published;
+    try {
+      published = publish(partition, message, remainingBlock(startNanos));
+    } catch (RuntimeException e) {
+      buffer.release(bytes);
+      throw e;
+    }
+    // The message holds its buffer memory until the publisher is done with it, even if the send
+    // times out first.
+    published.addListener(() -> buffer.release(bytes), MoreExecutors.directExecutor());
+    ApiFuture<MessageMetadata> future = deliveryTimeouts.track(published);
+    ApiFutures.addCallback(
+        future,
+        new ApiFutureCallback<MessageMetadata>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            metrics.recordError();
+          }
+
+          @Override
+          public void onSuccess(MessageMetadata metadata) {}
+        },
+        MoreExecutors.directExecutor());
     return ApiFutures.transform(
         future,
         meta ->
@@ -145,21 +262,25 @@ class PubsubLiteProducer implements Producer<byte[], byte[]> {
                 0,
                 -1,
                 0L,
-                producerRecord.key().length,
-                producerRecord.value().length),
+                message.getKey().size(),
+                message.getData().size()),
         MoreExecutors.directExecutor());
   }
 
   @Override
-  public Future<RecordMetadata> send(
-      ProducerRecord<byte[], byte[]> producerRecord, Callback callback) {
+  public Future<RecordMetadata> send(ProducerRecord<K, V> producerRecord, Callback callback) {
     ApiFuture<RecordMetadata> future = send(producerRecord);
     ApiFutures.addCallback(
         future,
         new ApiFutureCallback<RecordMetadata>() {
           @Override
           public void onFailure(Throwable throwable) {
-            callback.onCompletion(null, ExtractStatus.toCanonical(throwable));
+            // Kafka errors, such as an exhausted buffer, are passed through unchanged.
+            callback.onCompletion(
+                null,
+                throwable instanceof KafkaException
+                    ? (KafkaException) throwable
+                    : ExtractStatus.toCanonical(throwable));
           }
 
           @Override
@@ -171,24 +292,32 @@ class PubsubLiteProducer implements Producer<byte[], byte[]> {
     return future;
   }
 
+  @Override
+  public ApiFuture<Void> onBufferAvailable(long bytes) {
+    return buffer.onAvailable(bytes);
+  }
+
   @Override
   public void flush() {
+    long startNanos = System.nanoTime();
     try {
       publisher.flush();
     } catch (IOException e) {
       throw toKafka(e);
+    } finally {
+      metrics.recordFlush(System.nanoTime() - startNanos);
     }
   }
 
   @Override
   public List<PartitionInfo> partitionsFor(String s) {
     checkTopic(s);
-    return shared.partitionsFor(topicPath, INFINITE_DURATION);
+    return router.partitions();
   }
 
   @Override
   public Map<MetricName, ? extends Metric> metrics() {
-    return ImmutableMap.of();
+    return metrics.metrics();
   }
 
   @Override
@@ -203,10 +332,15 @@ class PubsubLiteProducer implements Producer<byte[], byte[]> {
     } catch (Exception e) {
       logger.atSevere().withCause(e).log("Error closing admin client during Producer shutdown.");
     }
+    router.close();
     try {
       publisher.stopAsync().awaitTerminated(duration.toMillis(), MILLISECONDS);
     } catch (TimeoutException e) {
       logger.atWarning().withCause(e).log("Failed to close publisher.");
     }
+    deliveryTimeouts.close();
+    keySerializer.close();
+    valueSerializer.close();
+    metrics.close();
   }
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.TopicPath;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
+
+/**
+ * Chooses the partition of each record sent by a producer, in the order Kafka does: the partition
+ * set on the record, then the configured Partitioner, then the murmur2 hash of the key if Kafka
+ * partitioning is enabled, then sticky partitioning for keyless records if it is enabled. Other
+ * records are routed by the Pub/Sub Lite publisher.
+ */
+class RecordRouter implements AutoCloseable {
+  private final TopicPath topic;
+  private final SharedBehavior shared;
+  private final Duration maxBlock;
+  private final Optional<Partitioner> partitioner;
+  private final boolean kafkaPartitioning;
+  private final Optional<StickyPartitioner> sticky;
+
+  private static final class ClusterSnapshot {
+    final List<PartitionInfo> partitions;
+    final Cluster cluster;
+
+    ClusterSnapshot(List<PartitionInfo> partitions) {
+      this.partitions = partitions;
+      this.cluster =
+          new Cluster(
+              null,
+              Arrays.asList(PubsubLiteNode.NODES),
+              partitions,
+              Collections.emptySet(),
+              Collections.emptySet());
+    }
+  }
+
+  // The cluster passed to the partitioner, rebuilt only when the cached partitions change.
+  private volatile ClusterSnapshot clusterSnapshot = null;
+
+  RecordRouter(
+      TopicPath topic,
+      SharedBehavior shared,
+      Duration maxBlock,
+      Optional<Partitioner> partitioner,
+      boolean kafkaPartitioning,
+      Optional<StickyPartitioner> sticky) {
+    this.topic = topic;
+    this.shared = shared;
+    this.maxBlock = maxBlock;
+    this.partitioner = partitioner;
+    this.kafkaPartitioning = kafkaPartitioning;
+    this.sticky = sticky;
+  }
+
+  /**
+   * The partitions of the topic. As with Kafka's metadata, waits at most the max block time when
+   * the partitions are not cached, then throws a {@link
+   * org.apache.kafka.common.errors.TimeoutException}.
+   */
+  List<PartitionInfo> partitions() {
+    return partitions(maxBlock);
+  }
+
+  private List<PartitionInfo> partitions(Duration timeout) {
+    return shared.partitionsFor(topic, timeout);
+  }
+
+  private Cluster cluster(Duration timeout) {
+    List<PartitionInfo> partitions = partitions(timeout);
+    ClusterSnapshot snapshot = clusterSnapshot;
+    if (snapshot == null || snapshot.partitions != partitions) {
+      snapshot = new ClusterSnapshot(partitions);
+      clusterSnapshot = snapshot;
+    }
+    return snapshot.cluster;
+  }
+
+  /**
+   * The partition to publish the record to, or empty to let the publisher route it. messageBytes is
+   * the size of the message the record is published as.
+   */
+  Optional<Partition> route(ProducerRecord<byte[], byte[]> record, long messageBytes) {
+    return route(record, record, messageBytes);
+  }
+
+  /**
+   * Like {@link #route(ProducerRecord, long)}, for a record with typed keys and values. The
+   * partitioner is passed both the typed and serialized key and value, and everything else uses the
+   * serialized record.
+   */
+  Optional<Partition> route(
+      ProducerRecord<?, ?> record, ProducerRecord<byte[], byte[]> serialized, long messageBytes) {
+    return route(record, serialized, messageBytes, maxBlock);
+  }
+
+  /**
+   * Like {@link #route(ProducerRecord, ProducerRecord, long)}, waiting at most timeout instead of
+   * the max block time for the partitions.
+   */
+  Optional<Partition> route(
+      ProducerRecord<?, ?> record,
+      ProducerRecord<byte[], byte[]> serialized,
+      long messageBytes,
+      Duration timeout) {
+    if (record.partition() != null) {
+      int count = partitions(timeout).size();
+      if (record.partition() >= count) {
+        throw new KafkaException(
+            String.format(
+                "Invalid partition given with record: %d is not in the range [0...%d).",
+                record.partition(), count));
+      }
+      return Optional.of(Partition.of(record.partition()));
+    }
+    if (partitioner.isPresent()) {
+      int partition =
+          partitioner
+              .get()
+              .partition(
+                  topic.toString(),
+                  record.key(),
+                  serialized.key(),
+                  record.value(),
+                  serialized.value(),
+                  cluster(timeout));
+      if (partition < 0) {
+        throw new IllegalArgumentException(
+            String.format(
+                "The partitioner generated an invalid partition number: %d. Partition number"
+                    + " should always be non-negative.",
+                partition));
+      }
+      return Optional.of(Partition.of(partition));
+    }
+    // Kafka hashes empty keys, while the Pub/Sub Lite publisher treats them as missing.
+    byte[] key = serialized.key();
+    boolean keyless = key == null || (!kafkaPartitioning && key.length == 0);
+    if (kafkaPartitioning && !keyless) {
+      // The same hash as Kafka's built-in partitioner.
+      return Optional.of(
+          Partition.of(Utils.toPositive(Utils.murmur2(key)) % partitions(timeout).size()));
+    }
+    if (sticky.isPresent() && keyless) {
+      return Optional.of(sticky.get().partition(partitions(timeout).size(), messageBytes));
+    }
+    return Optional.empty();
+  }
+
+  @Override
+  public void close() {
+    partitioner.ifPresent(Partitioner::close);
+  }
+}
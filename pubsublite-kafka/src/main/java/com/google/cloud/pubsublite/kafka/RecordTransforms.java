@@ -21,64 +21,210 @@ import com.google.cloud.pubsublite.TopicPath;
 import com.google.cloud.pubsublite.proto.AttributeValues;
 import com.google.cloud.pubsublite.proto.PubSubMessage;
 import com.google.cloud.pubsublite.proto.SequencedMessage;
-import com.google.common.collect.ImmutableListMultimap;
 import com.google.protobuf.ByteString;
-import com.google.protobuf.Timestamp;
+import com.google.protobuf.UnsafeByteOperations;
 import com.google.protobuf.util.Timestamps;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.errors.RecordDeserializationException.DeserializationExceptionOrigin;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.Deserializer;
 
 class RecordTransforms {
   private RecordTransforms() {}
 
   static PubSubMessage toMessage(ProducerRecord<byte[], byte[]> record) {
+    return toMessage(record, ByteString::copyFrom, ByteString::copyFrom, ByteString::copyFrom);
+  }
+
+  /**
+   * Like {@link #toMessage}, but the key, value and header values of the returned message wrap the
+   * arrays of the record instead of copying them. The arrays must not be modified afterwards.
+   */
+  static PubSubMessage toMessageZeroCopy(ProducerRecord<byte[], byte[]> record) {
+    return toMessage(
+        record,
+        UnsafeByteOperations::unsafeWrap,
+        UnsafeByteOperations::unsafeWrap,
+        UnsafeByteOperations::unsafeWrap);
+  }
+
+  /**
+   * Like {@link #toMessage}, for records whose key and value were produced by serializers. The key
+   * and value of the returned message wrap the record's arrays unless copyKey or copyValue is set,
+   * for serializers which may return an array the caller still holds. Header values are always
+   * copied.
+   */
+  static Function<ProducerRecord<byte[], byte[]>, PubSubMessage> toMessageFromSerialized(
+      boolean copyKey, boolean copyValue) {
+    Function<byte[], ByteString> keyBytes =
+        copyKey ? ByteString::copyFrom : UnsafeByteOperations::unsafeWrap;
+    Function<byte[], ByteString> valueBytes =
+        copyValue ? ByteString::copyFrom : UnsafeByteOperations::unsafeWrap;
+    return record -> toMessage(record, keyBytes, valueBytes, ByteString::copyFrom);
+  }
+
+  // Kafka allows null keys, values and header values, which are sent as empty.
+  private static ByteString orEmpty(byte[] bytes, Function<byte[], ByteString> toByteString) {
+    return bytes == null ? ByteString.EMPTY : toByteString.apply(bytes);
+  }
+
+  private static PubSubMessage toMessage(
+      ProducerRecord<byte[], byte[]> record,
+      Function<byte[], ByteString> keyBytes,
+      Function<byte[], ByteString> valueBytes,
+      Function<byte[], ByteString> headerBytes) {
     PubSubMessage.Builder builder =
         PubSubMessage.newBuilder()
-            .setKey(ByteString.copyFrom(record.key()))
-            .setData(ByteString.copyFrom(record.value()));
+            .setKey(orEmpty(record.key(), keyBytes))
+            .setData(orEmpty(record.value(), valueBytes));
     if (record.timestamp() != null) {
       builder.setEventTime(Timestamps.fromMillis(record.timestamp()));
     }
-    ImmutableListMultimap.Builder<String, ByteString> attributes = ImmutableListMultimap.builder();
-    record
-        .headers()
-        .forEach(header -> attributes.put(header.key(), ByteString.copyFrom(header.value())));
-    attributes
-        .build()
-        .asMap()
-        .forEach(
-            (key, values) ->
-                builder.putAttributes(
-                    key, AttributeValues.newBuilder().addAllValues(values).build()));
+    // Values of repeated header keys are grouped in order of first appearance.
+    Map<String, AttributeValues.Builder> attributes = new LinkedHashMap<>();
+    for (Header header : record.headers()) {
+      attributes
+          .computeIfAbsent(header.key(), key -> AttributeValues.newBuilder())
+          .addValues(orEmpty(header.value(), headerBytes));
+    }
+    attributes.forEach((key, values) -> builder.putAttributes(key, values.build()));
     return builder.build();
   }
 
   static ConsumerRecord<byte[], byte[]> fromMessage(
       SequencedMessage sequenced, TopicPath topic, Partition partition) {
     PubSubMessage message = sequenced.getMessage();
-    Headers headers = new LiteHeaders(message.getAttributesMap());
-    TimestampType type;
-    Timestamp timestamp;
-    if (message.hasEventTime()) {
-      type = TimestampType.CREATE_TIME;
-      timestamp = message.getEventTime();
-    } else {
-      type = TimestampType.LOG_APPEND_TIME;
-      timestamp = sequenced.getPublishTime();
-    }
+    return fromMessage(
+        sequenced,
+        topic,
+        partition,
+        message.getKey().toByteArray(),
+        message.getData().toByteArray());
+  }
+
+  /**
+   * Like {@link #fromMessage}, but the key and value of the returned record are read-only views of
+   * the received message instead of copies.
+   */
+  static ConsumerRecord<ByteBuffer, ByteBuffer> fromMessageZeroCopy(
+      SequencedMessage sequenced, TopicPath topic, Partition partition) {
+    PubSubMessage message = sequenced.getMessage();
+    return fromMessage(
+        sequenced,
+        topic,
+        partition,
+        message.getKey().asReadOnlyByteBuffer(),
+        message.getData().asReadOnlyByteBuffer());
+  }
+
+  /**
+   * Returns a factory which builds records whose key and value are decoded with the given
+   * deserializers. A failure to decode is thrown as a {@link RecordDeserializationException} naming
+   * the message's partition and offset, and whether the key or the value failed.
+   */
+  static <K, V> ConsumerRecordFactory<K, V> deserializing(
+      Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) {
+    return (sequenced, topic, partition) -> {
+      PubSubMessage message = sequenced.getMessage();
+      Headers headers = new LiteHeaders(message.getAttributesMap());
+      String topicName = topic.toString();
+      K key;
+      try {
+        key = keyDeserializer.deserialize(topicName, headers, message.getKey().toByteArray());
+      } catch (RuntimeException e) {
+        throw deserializationFailure(
+            DeserializationExceptionOrigin.KEY, sequenced, topic, partition, headers, e);
+      }
+      V value;
+      try {
+        value = valueDeserializer.deserialize(topicName, headers, message.getData().toByteArray());
+      } catch (RuntimeException e) {
+        throw deserializationFailure(
+            DeserializationExceptionOrigin.VALUE, sequenced, topic, partition, headers, e);
+      }
+      return fromMessage(sequenced, topic, partition, headers, key, value);
+    };
+  }
+
+  private static RecordDeserializationException deserializationFailure(
+      DeserializationExceptionOrigin origin,
+      SequencedMessage sequenced,
+      TopicPath topic,
+      Partition partition,
+      Headers headers,
+      RuntimeException cause) {
+    PubSubMessage message = sequenced.getMessage();
+    long offset = sequenced.getCursor().getOffset();
+    return new RecordDeserializationException(
+        origin,
+        new TopicPartition(topic.toString(), (int) partition.value()),
+        offset,
+        timestampMillis(sequenced),
+        timestampType(sequenced),
+        message.getKey().asReadOnlyByteBuffer(),
+        message.getData().asReadOnlyByteBuffer(),
+        headers,
+        String.format(
+            "Error deserializing %s for partition %s at offset %s. If needed, please seek past the"
+                + " record to continue consumption.",
+            origin == DeserializationExceptionOrigin.KEY ? "key" : "value",
+            partition.value(),
+            offset),
+        cause);
+  }
+
+  // Records carry the event time if the message has one, and the publish time otherwise.
+  private static TimestampType timestampType(SequencedMessage sequenced) {
+    return sequenced.getMessage().hasEventTime()
+        ? TimestampType.CREATE_TIME
+        : TimestampType.LOG_APPEND_TIME;
+  }
+
+  private static long timestampMillis(SequencedMessage sequenced) {
+    PubSubMessage message = sequenced.getMessage();
+    return Timestamps.toMillis(
+        message.hasEventTime() ? message.getEventTime() : sequenced.getPublishTime());
+  }
+
+  private static <K, V> ConsumerRecord<K, V> fromMessage(
+      SequencedMessage sequenced, TopicPath topic, Partition partition, K key, V value) {
+    return fromMessage(
+        sequenced,
+        topic,
+        partition,
+        new LiteHeaders(sequenced.getMessage().getAttributesMap()),
+        key,
+        value);
+  }
+
+  private static <K, V> ConsumerRecord<K, V> fromMessage(
+      SequencedMessage sequenced,
+      TopicPath topic,
+      Partition partition,
+      Headers headers,
+      K key,
+      V value) {
+    PubSubMessage message = sequenced.getMessage();
     return new ConsumerRecord<>(
         topic.toString(),
         (int) partition.value(),
         sequenced.getCursor().getOffset(),
-        Timestamps.toMillis(timestamp),
-        type,
+        timestampMillis(sequenced),
+        timestampType(sequenced),
         0L,
         message.getKey().size(),
         message.getData().size(),
-        message.getKey().toByteArray(),
-        message.getData().toByteArray(),
+        key,
+        value,
         headers);
   }
 }
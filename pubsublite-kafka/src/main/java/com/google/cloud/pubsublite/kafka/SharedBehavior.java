@@ -18,21 +18,58 @@ package com.google.cloud.pubsublite.kafka;
 
 import static com.google.cloud.pubsublite.kafka.KafkaExceptionUtils.toKafka;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
 import com.google.cloud.pubsublite.AdminClient;
 import com.google.cloud.pubsublite.Partition;
 import com.google.cloud.pubsublite.TopicPath;
+import com.google.cloud.pubsublite.internal.CloseableMonitor;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.apache.kafka.common.PartitionInfo;
 
 /** Shared behavior for producer and consumer. */
 final class SharedBehavior implements AutoCloseable {
+  // The same as Kafka's default metadata.max.age.ms.
+  private static final Duration DEFAULT_PARTITIONS_TTL = Duration.ofMinutes(5);
+
   private final AdminClient client;
+  private final long partitionsTtlNanos;
+  private final Ticker ticker;
+
+  private static final class CachedPartitions {
+    final long count;
+    final List<PartitionInfo> partitions;
+    final long fetchedNanos;
+
+    CachedPartitions(long count, List<PartitionInfo> partitions, long fetchedNanos) {
+      this.count = count;
+      this.partitions = partitions;
+      this.fetchedNanos = fetchedNanos;
+    }
+  }
+
+  private final CloseableMonitor monitor = new CloseableMonitor();
+  private final Map<TopicPath, CachedPartitions> cache = new HashMap<>();
+  // The outstanding partition count request for each topic, shared by all callers.
+  private final Map<TopicPath, ApiFuture<CachedPartitions>> inFlight = new HashMap<>();
 
   SharedBehavior(AdminClient client) {
+    this(client, DEFAULT_PARTITIONS_TTL, Ticker.systemTicker());
+  }
+
+  SharedBehavior(AdminClient client, Duration partitionsTtl, Ticker ticker) {
     this.client = client;
+    this.partitionsTtlNanos = partitionsTtl.toNanos();
+    this.ticker = ticker;
   }
 
   private static PartitionInfo toPartitionInfo(TopicPath topic, Partition partition) {
@@ -44,20 +81,81 @@ final class SharedBehavior implements AutoCloseable {
         PubsubLiteNode.NODES);
   }
 
+  /**
+   * Returns the partitions of the topic, cached for at most the partitions TTL.
+   *
+   * <p>Once half of the TTL has elapsed, the cached partitions are still returned while they are
+   * refreshed in the background, so callers only wait for the admin client when a topic is first
+   * seen or has not been read for a whole TTL. The same list is returned until the partition count
+   * changes.
+   */
   List<PartitionInfo> partitionsFor(TopicPath topic, Duration timeout) {
     try {
-      long partitionCount =
-          client.getTopicPartitionCount(topic).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
-      ImmutableList.Builder<PartitionInfo> result = ImmutableList.builder();
-      for (int i = 0; i < partitionCount; ++i) {
-        result.add(toPartitionInfo(topic, Partition.of(i)));
+      ApiFuture<CachedPartitions> pending;
+      try (CloseableMonitor.Hold h = monitor.enter()) {
+        CachedPartitions cached = cache.get(topic);
+        if (cached != null) {
+          long ageNanos = ticker.read() - cached.fetchedNanos;
+          if (ageNanos < partitionsTtlNanos) {
+            if (ageNanos >= partitionsTtlNanos / 2) {
+              fetch(topic);
+            }
+            return cached.partitions;
+          }
+        }
+        pending = fetch(topic);
       }
-      return result.build();
+      return pending.get(timeout.toMillis(), TimeUnit.MILLISECONDS).partitions;
     } catch (Throwable t) {
       throw toKafka(t);
     }
   }
 
+  // Starts fetching the partition count of the topic unless a fetch is already outstanding. Must
+  // be called while holding the monitor.
+  private ApiFuture<CachedPartitions> fetch(TopicPath topic) {
+    ApiFuture<CachedPartitions> existing = inFlight.get(topic);
+    if (existing != null) return existing;
+    SettableApiFuture<CachedPartitions> result = SettableApiFuture.create();
+    inFlight.put(topic, result);
+    long startNanos = ticker.read();
+    ApiFutures.addCallback(
+        client.getTopicPartitionCount(topic),
+        new ApiFutureCallback<Long>() {
+          @Override
+          public void onFailure(Throwable t) {
+            try (CloseableMonitor.Hold h = monitor.enter()) {
+              inFlight.remove(topic);
+            }
+            result.setException(t);
+          }
+
+          @Override
+          public void onSuccess(Long count) {
+            CachedPartitions fetched;
+            try (CloseableMonitor.Hold h = monitor.enter()) {
+              inFlight.remove(topic);
+              CachedPartitions previous = cache.get(topic);
+              List<PartitionInfo> partitions;
+              if (previous != null && previous.count == count) {
+                partitions = previous.partitions;
+              } else {
+                ImmutableList.Builder<PartitionInfo> builder = ImmutableList.builder();
+                for (int i = 0; i < count; ++i) {
+                  builder.add(toPartitionInfo(topic, Partition.of(i)));
+                }
+                partitions = builder.build();
+              }
+              fetched = new CachedPartitions(count, partitions, startNanos);
+              cache.put(topic, fetched);
+            }
+            result.set(fetched);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return result;
+  }
+
   @Override
   public void close() {
     client.close();
@@ -32,21 +32,35 @@ import com.google.cloud.pubsublite.proto.SequencedMessage;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.MoreExecutors;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
 
 /** Pulls messages and manages commits for a single partition of a subscription. */
 class SinglePartitionSubscriber extends ProxyService {
   private final PullSubscriberFactory subscriberFactory;
   private final Partition partition;
   private final Committer committer;
+  private final PollSignal pollSignal;
+  private final Runnable signalPoll;
+  private final ConsumerMetrics metrics;
   private final boolean enableReset;
 
   private final CloseableMonitor monitor = new CloseableMonitor();
 
   private BlockingPullSubscriber subscriber;
 
+  // The data notification future of the subscriber which signalPoll is registered on.
+  private ApiFuture<Void> registeredOnData = null;
+
+  // Messages pulled from the subscriber which did not fit in the last call to getMessages.
+  private final ArrayDeque<SequencedMessage> carryOver = new ArrayDeque<>();
+
   private boolean needsCommitting = false;
 
+  private volatile boolean paused = false;
+
   private Optional<Offset> lastReceived = Optional.empty();
 
   SinglePartitionSubscriber(
@@ -54,11 +68,16 @@ class SinglePartitionSubscriber extends ProxyService {
       Partition partition,
       SeekRequest initialSeek,
       Committer committer,
+      PollSignal pollSignal,
+      ConsumerMetrics metrics,
       boolean enableReset)
       throws CheckedApiException {
     this.subscriberFactory = subscriberFactory;
     this.partition = partition;
     this.committer = committer;
+    this.pollSignal = pollSignal;
+    this.signalPoll = pollSignal::signal;
+    this.metrics = metrics;
     this.enableReset = enableReset;
     this.subscriber =
         subscriberFactory.newPullSubscriber(partition, initialSeek, this::onSubscriberReset);
@@ -85,30 +104,89 @@ class SinglePartitionSubscriber extends ProxyService {
   void clientSeek(SeekRequest request) throws CheckedApiException {
     try (CloseableMonitor.Hold h = monitor.enter()) {
       subscriber.close();
+      carryOver.clear();
       subscriber = subscriberFactory.newPullSubscriber(partition, request, this::onSubscriberReset);
     }
   }
 
-  ApiFuture<Void> onData() {
+  /**
+   * Ensures the poll signal is set once messages may be available. A listener is registered at most
+   * once per subscriber notification future, so calling this on every poll does not accumulate
+   * callbacks.
+   */
+  void signalOnData() {
+    if (paused) return;
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      if (!carryOver.isEmpty()) {
+        pollSignal.signal();
+        return;
+      }
+      ApiFuture<Void> onData = subscriber.onData();
+      if (onData.isDone()) {
+        pollSignal.signal();
+        return;
+      }
+      if (onData != registeredOnData) {
+        registeredOnData = onData;
+        onData.addListener(signalPoll, MoreExecutors.directExecutor());
+      }
+    }
+  }
+
+  /**
+   * Pauses or resumes delivery from this partition. While paused, messages are not pulled from the
+   * subscriber, so it stops returning flow control tokens to the server once its buffer is full.
+   */
+  void setPaused(boolean paused) {
     try (CloseableMonitor.Hold h = monitor.enter()) {
-      return subscriber.onData();
+      boolean resumed = this.paused && !paused;
+      this.paused = paused;
+      if (resumed) {
+        // Let an ongoing poll pick up this partition again.
+        pollSignal.signal();
+      }
+    }
+  }
+
+  boolean isPaused() {
+    return paused;
+  }
+
+  private Optional<SequencedMessage> nextMessage() throws CheckedApiException {
+    if (!carryOver.isEmpty()) {
+      return Optional.of(carryOver.removeFirst());
     }
+    return subscriber.messageIfAvailable();
   }
 
-  private ArrayDeque<SequencedMessage> pullMessages() throws CheckedApiException {
+  private ArrayDeque<SequencedMessage> pullMessages(
+      int maxMessages, long targetBytes, long maxBytes) throws CheckedApiException {
     ArrayDeque<SequencedMessage> messages = new ArrayDeque<>();
-    for (Optional<SequencedMessage> message = subscriber.messageIfAvailable();
-        message.isPresent();
-        message = subscriber.messageIfAvailable()) {
+    long bytes = 0;
+    while (messages.size() < maxMessages && bytes < targetBytes) {
+      Optional<SequencedMessage> message = nextMessage();
+      if (!message.isPresent()) {
+        break;
+      }
+      if (bytes + message.get().getSizeBytes() > maxBytes) {
+        carryOver.addFirst(message.get());
+        break;
+      }
+      bytes += message.get().getSizeBytes();
       messages.add(message.get());
     }
     return messages;
   }
 
-  /** Pulls all available messages. */
-  ArrayDeque<SequencedMessage> getMessages() throws CheckedApiException {
+  /**
+   * Pulls available messages until maxMessages have been pulled, their total size reaches
+   * targetBytes, or the next message would take their total size above maxBytes. A pulled message
+   * that does not fit is kept for the next call.
+   */
+  ArrayDeque<SequencedMessage> getMessages(int maxMessages, long targetBytes, long maxBytes)
+      throws CheckedApiException {
     try (CloseableMonitor.Hold h = monitor.enter()) {
-      ArrayDeque<SequencedMessage> messages = pullMessages();
+      ArrayDeque<SequencedMessage> messages = pullMessages(maxMessages, targetBytes, maxBytes);
       if (!messages.isEmpty()) {
         lastReceived = Optional.of(Offset.of(Iterables.getLast(messages).getCursor().getOffset()));
         needsCommitting = true;
@@ -117,6 +195,32 @@ class SinglePartitionSubscriber extends ProxyService {
     }
   }
 
+  /**
+   * Returns messages from the last call to getMessages which were not delivered, because the first
+   * of them failed to decode. They are returned again by the next call, and the position goes back
+   * to the first of them.
+   */
+  void rewind(Queue<SequencedMessage> undelivered) {
+    if (undelivered.isEmpty()) return;
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      List<SequencedMessage> messages = new ArrayList<>(undelivered);
+      for (int i = messages.size() - 1; i >= 0; --i) {
+        carryOver.addFirst(messages.get(i));
+      }
+      long offset = messages.get(0).getCursor().getOffset();
+      lastReceived = offset > 0 ? Optional.of(Offset.of(offset - 1)) : Optional.empty();
+      // Nothing was received before the first offset, so there is nothing to commit.
+      if (!lastReceived.isPresent()) needsCommitting = false;
+    }
+  }
+
+  /** Whether a message which did not fit in the last call to getMessages is waiting. */
+  boolean hasCarryOver() {
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      return !carryOver.isEmpty();
+    }
+  }
+
   Optional<Long> position() {
     try (CloseableMonitor.Hold h = monitor.enter()) {
       return lastReceived.map(lastReceived -> lastReceived.value() + 1);
@@ -153,11 +257,12 @@ class SinglePartitionSubscriber extends ProxyService {
     // after this function returns.
     try (CloseableMonitor.Hold h = monitor.enter()) {
       // Discard undelivered messages.
-      pullMessages();
+      pullMessages(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
       // Prevent further auto-commits until post-seek messages are received.
       needsCommitting = false;
     }
     committer.waitUntilEmpty();
+    metrics.recordReset();
     return true;
   }
 }
@@ -28,12 +28,19 @@ import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.common.KafkaException;
 
 /** A stripped down KafkaConsumer interface that operates on a single subscription. */
-interface SingleSubscriptionConsumer {
+interface SingleSubscriptionConsumer<K, V> {
   void setAssignment(Set<Partition> partitions);
 
   Set<Partition> assignment();
 
-  ConsumerRecords<byte[], byte[]> poll(Duration duration);
+  ConsumerRecords<K, V> poll(Duration duration);
+
+  /**
+   * Returns a future which completes once a poll may return records without waiting, the set of
+   * assigned partitions changes or wakeup is called. This must not be called concurrently with a
+   * blocking poll.
+   */
+  ApiFuture<Void> onData();
 
   ApiFuture<Map<Partition, Offset>> commitAll();
 
@@ -43,6 +50,17 @@ interface SingleSubscriptionConsumer {
 
   Optional<Long> position(Partition partition);
 
+  /**
+   * Stop returning messages from the given partitions until they are resumed. Throws
+   * IllegalStateException if any partition is not assigned to this consumer.
+   */
+  void pause(Set<Partition> partitions);
+
+  /** Resume returning messages from the given partitions. */
+  void resume(Set<Partition> partitions);
+
+  Set<Partition> paused();
+
   void close(Duration duration);
 
   /**
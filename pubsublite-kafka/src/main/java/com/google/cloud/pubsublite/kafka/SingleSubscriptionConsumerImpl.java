@@ -18,15 +18,18 @@ package com.google.cloud.pubsublite.kafka;
 
 import static com.google.cloud.pubsublite.internal.wire.ApiServiceUtils.blockingShutdown;
 import static com.google.cloud.pubsublite.kafka.KafkaExceptionUtils.toKafka;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
+import com.google.api.core.ApiService;
+import com.google.api.core.ApiService.Listener;
+import com.google.api.core.ApiService.State;
 import com.google.api.core.SettableApiFuture;
 import com.google.cloud.pubsublite.Offset;
 import com.google.cloud.pubsublite.Partition;
 import com.google.cloud.pubsublite.TopicPath;
+import com.google.cloud.pubsublite.internal.CheckedApiException;
 import com.google.cloud.pubsublite.internal.CloseableMonitor;
 import com.google.cloud.pubsublite.internal.ExtractStatus;
 import com.google.cloud.pubsublite.proto.SeekRequest;
@@ -39,209 +42,583 @@ import com.google.common.flogger.GoogleLogger;
 import com.google.common.util.concurrent.MoreExecutors;
 import java.time.Duration;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import org.apache.kafka.clients.consumer.CommitFailedException;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
 import org.apache.kafka.common.errors.WakeupException;
 
-class SingleSubscriptionConsumerImpl implements SingleSubscriptionConsumer {
+class SingleSubscriptionConsumerImpl<K, V> implements SingleSubscriptionConsumer<K, V> {
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
   private final TopicPath topic;
   private final boolean autocommit;
+  private final long autocommitIntervalNanos;
+  private final int maxPollRecords;
+  private final long maxPollBytes;
 
   private final PullSubscriberFactory subscriberFactory;
   private final CommitterFactory committerFactory;
+  private final ConsumerRecordFactory<K, V> recordFactory;
+  private final Optional<Executor> recordExecutor;
+  private final Executor executor;
+  private final ConsumerMetrics metrics;
+  private final CommittedOffsetCache committedOffsets;
 
-  private final CloseableMonitor monitor = new CloseableMonitor();
+  // Serializes polls and the removal of revoked partitions. Per-partition operations such as commit
+  // and seek do not take it, as each SinglePartitionSubscriber synchronizes itself.
+  private final CloseableMonitor pollMonitor = new CloseableMonitor();
+  // Serializes changes to the set of assigned partitions.
+  private final CloseableMonitor assignmentMonitor = new CloseableMonitor();
 
-  private final Map<Partition, SinglePartitionSubscriber> partitions = new HashMap<>();
-  // When the set of assignments changes, this future will be set and swapped with a new future to
-  // let ongoing pollers know that they should pick up new assignments.
-  private SettableApiFuture<Void> assignmentChanged = SettableApiFuture.create();
+  private final ConcurrentNavigableMap<Partition, SinglePartitionSubscriber> partitions =
+      new ConcurrentSkipListMap<>(Comparator.comparingLong(Partition::value));
+  // The number of positions the partitions are rotated by before being drained by the next poll.
+  private int pollRotation = 0;
+  // Set when messages may be available, the set of assignments changes or wakeup() is called, to
+  // let ongoing pollers know that they should stop waiting.
+  private final PollSignal pollSignal = new PollSignal();
+
+  // The System.nanoTime() after which the next poll auto-commits. Only accessed by pollers.
+  private long nextAutocommitNanos;
+
+  // The partition whose next record failed to decode after other records were pulled, which are
+  // returned first. The next poll pulls from it alone so that it fails again. Only accessed by
+  // pollers.
+  private Optional<Partition> failedPartition = Optional.empty();
 
   // Set when wakeup() has been called once.
-  private final SettableApiFuture<Void> wakeupTriggered = SettableApiFuture.create();
+  private volatile boolean wakeupTriggered = false;
 
   SingleSubscriptionConsumerImpl(
       TopicPath topic,
       boolean autocommit,
+      Duration autocommitInterval,
+      int maxPollRecords,
+      long maxPollBytes,
       PullSubscriberFactory subscriberFactory,
-      CommitterFactory committerFactory) {
+      CommitterFactory committerFactory,
+      ConsumerRecordFactory<K, V> recordFactory,
+      Optional<Executor> recordExecutor,
+      Executor executor,
+      ConsumerMetrics metrics,
+      CommittedOffsetCache committedOffsets) {
     this.topic = topic;
     this.autocommit = autocommit;
+    this.autocommitIntervalNanos = autocommitInterval.toNanos();
+    this.nextAutocommitNanos = System.nanoTime() + autocommitIntervalNanos;
+    this.maxPollRecords = maxPollRecords;
+    this.maxPollBytes = maxPollBytes;
     this.subscriberFactory = subscriberFactory;
     this.committerFactory = committerFactory;
+    this.recordFactory = recordFactory;
+    this.recordExecutor = recordExecutor;
+    this.executor = executor;
+    this.metrics = metrics;
+    this.committedOffsets = committedOffsets;
   }
 
+  /**
+   * Starts and stops partitions concurrently on the executor. Polls are only blocked while revoked
+   * partitions are removed. Each new partition becomes pollable once it is running.
+   *
+   * <p>Executor threads are only used to create and close the underlying subscribers. Waiting for
+   * partitions to finish starting or stopping, which includes flushing their commits, is done with
+   * service listeners, so many consumers can share the executor without parking its threads.
+   */
   @Override
   public void setAssignment(Set<Partition> assignment) {
-    try (CloseableMonitor.Hold h = monitor.enter()) {
-
-      List<SinglePartitionSubscriber> unassigned =
-          ImmutableSet.copyOf(partitions.keySet()).stream()
-              .filter(p -> !assignment.contains(p))
-              .map(partitions::remove)
-              .collect(Collectors.toList());
-      blockingShutdown(unassigned);
-      assignment.stream()
-          .filter(p -> !partitions.containsKey(p))
-          .forEach(
-              ExtractStatus.rethrowAsRuntime(
-                  partition -> {
-                    SinglePartitionSubscriber subscriber =
-                        new SinglePartitionSubscriber(
-                            subscriberFactory,
-                            partition,
-                            SeekRequest.newBuilder()
-                                .setNamedTarget(NamedTarget.COMMITTED_CURSOR)
-                                .build(),
-                            committerFactory.newCommitter(partition),
-                            autocommit);
-                    subscriber.startAsync().awaitRunning();
-                    partitions.put(partition, subscriber);
-                  }));
-      assignmentChanged.set(null);
-      assignmentChanged = SettableApiFuture.create();
+    try (CloseableMonitor.Hold a = assignmentMonitor.enter()) {
+      Map<Partition, SinglePartitionSubscriber> unassigned = new HashMap<>();
+      List<Partition> added = new ArrayList<>();
+      // Revoked partitions are removed under the poll monitor, so that no poll pulls from them
+      // once they start flushing their final commit and shutting down.
+      try (CloseableMonitor.Hold h = pollMonitor.enter()) {
+        for (Partition partition : partitions.keySet()) {
+          if (!assignment.contains(partition)) {
+            unassigned.put(partition, partitions.remove(partition));
+            metrics.removePartition(partition);
+          }
+        }
+      }
+      for (Partition partition : assignment) {
+        if (!partitions.containsKey(partition)) {
+          added.add(partition);
+        }
+      }
+      pollSignal.signal();
+      List<ApiFuture<Void>> changes = new ArrayList<>();
+      unassigned.forEach(
+          (partition, subscriber) ->
+              changes.add(
+                  runAsync(
+                      () -> {
+                        // Flush the pending offset of a revoked partition. Shutting down
+                        // the committer waits for the commit to complete.
+                        if (autocommit) {
+                          subscriber
+                              .autoCommit()
+                              .ifPresent(commit -> recordCommitted(partition, commit));
+                        }
+                        return whenStopped(subscriber);
+                      })));
+      for (Partition partition : added) {
+        changes.add(runAsync(() -> startPartition(partition)));
+      }
+      awaitAll(changes);
     } catch (Throwable t) {
       throw ExtractStatus.toCanonical(t).underlying;
     }
   }
 
+  private ApiFuture<Void> startPartition(Partition partition) throws CheckedApiException {
+    SinglePartitionSubscriber subscriber =
+        new SinglePartitionSubscriber(
+            subscriberFactory,
+            partition,
+            SeekRequest.newBuilder().setNamedTarget(NamedTarget.COMMITTED_CURSOR).build(),
+            committerFactory.newCommitter(partition),
+            pollSignal,
+            metrics,
+            autocommit);
+    return ApiFutures.transform(
+        whenRunning(subscriber),
+        ignored -> {
+          metrics.addPartition(partition);
+          partitions.put(partition, subscriber);
+          pollSignal.signal();
+          return null;
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  // Starts the service, returning a future which completes once it is running. The future fails if
+  // the service fails or stops before it is running.
+  private static ApiFuture<Void> whenRunning(ApiService service) {
+    SettableApiFuture<Void> running = SettableApiFuture.create();
+    service.addListener(
+        new Listener() {
+          @Override
+          public void running() {
+            running.set(null);
+          }
+
+          @Override
+          public void failed(State from, Throwable failure) {
+            running.setException(failure);
+          }
+
+          @Override
+          public void terminated(State from) {
+            running.setException(
+                new IllegalStateException("Partition subscriber stopped before it was running."));
+          }
+        },
+        MoreExecutors.directExecutor());
+    service.startAsync();
+    return running;
+  }
+
+  // Stops the service, returning a future which completes once it has terminated or failed.
+  private static ApiFuture<Void> whenStopped(ApiService service) {
+    SettableApiFuture<Void> stopped = SettableApiFuture.create();
+    service.addListener(
+        new Listener() {
+          @Override
+          public void failed(State from, Throwable failure) {
+            stopped.set(null);
+          }
+
+          @Override
+          public void terminated(State from) {
+            stopped.set(null);
+          }
+        },
+        MoreExecutors.directExecutor());
+    State state = service.stopAsync().state();
+    // Listeners are not called for a service which was already stopped when they were added.
+    if (state == State.TERMINATED || state == State.FAILED) {
+      stopped.set(null);
+    }
+    return stopped;
+  }
+
+  private interface PartitionTask {
+    // Begins the change, returning a future which completes once it is done.
+    ApiFuture<Void> start() throws Exception;
+  }
+
+  private ApiFuture<Void> runAsync(PartitionTask task) {
+    SettableApiFuture<ApiFuture<Void>> started = SettableApiFuture.create();
+    executor.execute(
+        () -> {
+          try {
+            started.set(task.start());
+          } catch (Throwable t) {
+            started.setException(t);
+          }
+        });
+    return ApiFutures.transformAsync(started, done -> done, MoreExecutors.directExecutor());
+  }
+
+  // Waits for every future to complete, then rethrows the first failure if any.
+  private static void awaitAll(List<ApiFuture<Void>> futures) throws Throwable {
+    Optional<Throwable> failure = Optional.empty();
+    for (ApiFuture<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (!failure.isPresent()) failure = Optional.of(e.getCause());
+      }
+    }
+    if (failure.isPresent()) throw failure.get();
+  }
+
   @Override
   public Set<Partition> assignment() {
-    try (CloseableMonitor.Hold h = monitor.enter()) {
-      return partitions.keySet();
+    return ImmutableSet.copyOf(partitions.keySet());
+  }
+
+  /**
+   * Resets the poll signal, then sets it again if any partition may have messages. Anything which
+   * happens after the reset sets the signal again, and anything which happened before it is
+   * observed by this call.
+   */
+  private void armPollSignal() {
+    pollSignal.reset();
+    for (SinglePartitionSubscriber subscriber : partitions.values()) {
+      subscriber.signalOnData();
     }
   }
 
+  @Override
+  public ApiFuture<Void> onData() {
+    armPollSignal();
+    return pollSignal.onSignal();
+  }
+
   private Map<Partition, Queue<SequencedMessage>> doPoll(Duration duration) {
     try {
-      ImmutableList.Builder<ApiFuture<Void>> stopSleepingSignals = ImmutableList.builder();
-      try (CloseableMonitor.Hold h = monitor.enter()) {
-        stopSleepingSignals.add(wakeupTriggered);
-        stopSleepingSignals.add(assignmentChanged);
-        partitions.values().forEach(subscriber -> stopSleepingSignals.add(subscriber.onData()));
+      Optional<Partition> failed = failedPartition;
+      failedPartition = Optional.empty();
+      if (failed.isPresent()) {
+        try (CloseableMonitor.Hold h = pollMonitor.enter()) {
+          if (wakeupTriggered) throw new WakeupException();
+          SinglePartitionSubscriber subscriber = partitions.get(failed.get());
+          // The record is no longer pending if the partition was revoked, paused or seeked.
+          if (subscriber != null && !subscriber.isPaused() && subscriber.hasCarryOver()) {
+            return ImmutableMap.of(
+                failed.get(), subscriber.getMessages(1, Long.MAX_VALUE, Long.MAX_VALUE));
+          }
+        }
       }
-      try {
-        ApiFuturesExtensions.whenFirstDone(stopSleepingSignals.build())
-            .get(duration.toMillis(), MILLISECONDS);
-      } catch (TimeoutException e) {
+      armPollSignal();
+      if (!wakeupTriggered && !pollSignal.await(duration)) {
         return ImmutableMap.of();
       }
-      try (CloseableMonitor.Hold h = monitor.enter()) {
-        if (wakeupTriggered.isDone()) throw new WakeupException();
-        Map<Partition, Queue<SequencedMessage>> partitionQueues = new HashMap<>();
-        partitions.forEach(
-            ExtractStatus.rethrowAsRuntime(
-                (partition, subscriber) ->
-                    partitionQueues.put(partition, subscriber.getMessages())));
-        return partitionQueues;
+      try (CloseableMonitor.Hold h = pollMonitor.enter()) {
+        if (wakeupTriggered) throw new WakeupException();
+        return pullFairly();
       }
     } catch (Throwable t) {
       throw toKafka(t);
     }
   }
 
+  /**
+   * Pulls messages from all partitions in rounds, within the limits of a single poll.
+   *
+   * <p>Each round gives every partition which may still have messages an equal share of the
+   * remaining budget, so a busy partition cannot starve the others while leftover budget is still
+   * used. The partition drained first rotates between polls.
+   *
+   * <p>As with Kafka's fetch.max.bytes, if the next message of the partition drained first is
+   * larger than the whole byte limit, that message alone is returned. This lets every partition
+   * make progress, even while other partitions have messages which fit.
+   */
+  private Map<Partition, Queue<SequencedMessage>> pullFairly() throws CheckedApiException {
+    Map<Partition, Queue<SequencedMessage>> partitionQueues = new HashMap<>();
+    List<Map.Entry<Partition, SinglePartitionSubscriber>> rotated = new ArrayList<>();
+    for (Map.Entry<Partition, SinglePartitionSubscriber> entry : partitions.entrySet()) {
+      if (!entry.getValue().isPaused()) rotated.add(entry);
+    }
+    if (rotated.isEmpty()) return partitionQueues;
+    Collections.rotate(rotated, -(pollRotation % rotated.size()));
+    pollRotation = (pollRotation + 1) % rotated.size();
+
+    int remainingRecords = maxPollRecords;
+    long remainingBytes = maxPollBytes;
+    List<Map.Entry<Partition, SinglePartitionSubscriber>> active = rotated;
+    while (!active.isEmpty() && remainingRecords > 0 && remainingBytes > 0) {
+      int recordShare = Math.max(1, remainingRecords / active.size());
+      long byteShare = Math.max(1, remainingBytes / active.size());
+      List<Map.Entry<Partition, SinglePartitionSubscriber>> nextActive = new ArrayList<>();
+      for (Map.Entry<Partition, SinglePartitionSubscriber> entry : active) {
+        if (remainingRecords <= 0 || remainingBytes <= 0) break;
+        int maxRecords = Math.min(recordShare, remainingRecords);
+        ArrayDeque<SequencedMessage> messages =
+            entry.getValue().getMessages(maxRecords, byteShare, remainingBytes);
+        if (messages.isEmpty()
+            && partitionQueues.isEmpty()
+            && entry == rotated.get(0)
+            && entry.getValue().hasCarryOver()) {
+          messages = entry.getValue().getMessages(1, Long.MAX_VALUE, Long.MAX_VALUE);
+        }
+        if (messages.isEmpty()) continue;
+        long bytes = 0;
+        for (SequencedMessage message : messages) {
+          bytes += message.getSizeBytes();
+        }
+        remainingRecords -= messages.size();
+        remainingBytes -= bytes;
+        partitionQueues.computeIfAbsent(entry.getKey(), k -> new ArrayDeque<>()).addAll(messages);
+        // A partition which used up its share may have more messages for the next round.
+        if (messages.size() == maxRecords || bytes >= byteShare) {
+          nextActive.add(entry);
+        }
+      }
+      active = nextActive;
+    }
+    if (partitionQueues.isEmpty()) {
+      // As with Kafka's fetch.max.bytes, return a single message larger than the byte limit so
+      // that the consumer can make progress.
+      for (Map.Entry<Partition, SinglePartitionSubscriber> entry : rotated) {
+        if (entry.getValue().hasCarryOver()) {
+          partitionQueues.put(
+              entry.getKey(), entry.getValue().getMessages(1, Long.MAX_VALUE, Long.MAX_VALUE));
+          break;
+        }
+      }
+    }
+    return partitionQueues;
+  }
+
+  // Commits the latest offset of each partition, logging any failure.
+  private void autocommitAll() {
+    ApiFutures.addCallback(
+        commitAll(),
+        new ApiFutureCallback<Object>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            logger.atWarning().withCause(throwable).log("Failed to commit offsets.");
+          }
+
+          @Override
+          public void onSuccess(Object result) {}
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Auto-commits at most once per interval. Offsets received in between are coalesced, as only the
+   * latest offset of each partition is committed.
+   */
+  private void maybeAutocommit() {
+    if (!autocommit) return;
+    long nowNanos = System.nanoTime();
+    if (nowNanos - nextAutocommitNanos < 0) return;
+    nextAutocommitNanos = nowNanos + autocommitIntervalNanos;
+    autocommitAll();
+  }
+
   @Override
-  public ConsumerRecords<byte[], byte[]> poll(Duration duration) {
-    if (autocommit) {
-      ApiFuture<?> future = commitAll();
-      ApiFutures.addCallback(
-          future,
-          new ApiFutureCallback<Object>() {
-            @Override
-            public void onFailure(Throwable throwable) {
-              logger.atWarning().withCause(throwable).log("Failed to commit offsets.");
-            }
-
-            @Override
-            public void onSuccess(Object result) {}
-          },
-          MoreExecutors.directExecutor());
+  public ConsumerRecords<K, V> poll(Duration duration) {
+    maybeAutocommit();
+    long pollStartMs = metrics.recordPollStart();
+    Map<Partition, Queue<SequencedMessage>> partitionQueues;
+    try {
+      partitionQueues = doPoll(duration);
+    } finally {
+      metrics.recordPollEnd(pollStartMs);
     }
-    Map<Partition, Queue<SequencedMessage>> partitionQueues = doPoll(duration);
-    Map<TopicPartition, List<ConsumerRecord<byte[], byte[]>>> records = new HashMap<>();
+    Map<Partition, Queue<SequencedMessage>> nonEmpty = new HashMap<>();
     partitionQueues.forEach(
         (partition, queue) -> {
-          if (queue.isEmpty()) return;
-          List<ConsumerRecord<byte[], byte[]>> partitionRecords =
-              queue.stream()
-                  .map(message -> RecordTransforms.fromMessage(message, topic, partition))
-                  .collect(Collectors.toList());
-          records.put(
-              new TopicPartition(topic.toString(), (int) partition.value()), partitionRecords);
+          if (!queue.isEmpty()) nonEmpty.put(partition, queue);
         });
+    Map<Partition, DecodedRecords<K, V>> decoded = new HashMap<>();
+    if (recordExecutor.isPresent() && nonEmpty.size() > 1) {
+      Map<Partition, CompletableFuture<DecodedRecords<K, V>>> tasks = new HashMap<>();
+      nonEmpty.forEach(
+          (partition, queue) ->
+              tasks.put(
+                  partition,
+                  CompletableFuture.supplyAsync(
+                      () -> toRecords(partition, queue), recordExecutor.get())));
+      for (Map.Entry<Partition, CompletableFuture<DecodedRecords<K, V>>> task : tasks.entrySet()) {
+        decoded.put(task.getKey(), joinRecords(task.getValue()));
+      }
+    } else {
+      nonEmpty.forEach((partition, queue) -> decoded.put(partition, toRecords(partition, queue)));
+    }
+    Map<TopicPartition, List<ConsumerRecord<K, V>>> records = new HashMap<>();
+    Optional<RuntimeException> failure = Optional.empty();
+    for (Map.Entry<Partition, DecodedRecords<K, V>> entry : decoded.entrySet()) {
+      Partition partition = entry.getKey();
+      DecodedRecords<K, V> partitionRecords = entry.getValue();
+      if (!partitionRecords.records.isEmpty()) {
+        metrics.recordConsumed(partition, partitionRecords.records.size(), partitionRecords.bytes);
+        records.put(toTopicPartition(partition), partitionRecords.records);
+      }
+      if (partitionRecords.failure.isPresent()) {
+        // As with a KafkaConsumer, the position stays at the record which failed to decode.
+        SinglePartitionSubscriber subscriber = partitions.get(partition);
+        if (subscriber != null) subscriber.rewind(nonEmpty.get(partition));
+        if (!failure.isPresent()) {
+          failure = partitionRecords.failure;
+          failedPartition = Optional.of(partition);
+        }
+      }
+    }
+    // Records decoded before the failure are returned first, and the next poll fails instead.
+    if (failure.isPresent() && records.isEmpty()) {
+      failedPartition = Optional.empty();
+      throw failure.get();
+    }
     return new ConsumerRecords<>(records);
   }
 
+  private TopicPartition toTopicPartition(Partition partition) {
+    return new TopicPartition(topic.toString(), (int) partition.value());
+  }
+
+  /** The records of one partition decoded before the first failure, if any. */
+  private static final class DecodedRecords<K, V> {
+    final List<ConsumerRecord<K, V>> records = new ArrayList<>();
+    // The total size of the messages of the records.
+    long bytes = 0;
+    Optional<RuntimeException> failure = Optional.empty();
+  }
+
+  /**
+   * Builds the records of one partition in order, removing each message from the queue once its
+   * record is built. Stops at the first message which fails to decode, which is left at the head of
+   * the queue.
+   */
+  private DecodedRecords<K, V> toRecords(Partition partition, Queue<SequencedMessage> queue) {
+    DecodedRecords<K, V> decoded = new DecodedRecords<>();
+    for (SequencedMessage message = queue.peek(); message != null; message = queue.peek()) {
+      try {
+        decoded.records.add(recordFactory.newRecord(message, topic, partition));
+      } catch (RuntimeException e) {
+        decoded.failure = Optional.of(e);
+        break;
+      }
+      decoded.bytes += message.getSizeBytes();
+      queue.remove();
+    }
+    return decoded;
+  }
+
+  private static <K, V> DecodedRecords<K, V> joinRecords(
+      CompletableFuture<DecodedRecords<K, V>> task) {
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new KafkaException(e.getCause());
+    } catch (InterruptedException e) {
+      throw new InterruptException(e);
+    }
+  }
+
   @Override
   public ApiFuture<Map<Partition, Offset>> commitAll() {
-    try (CloseableMonitor.Hold h = monitor.enter()) {
-      List<ApiFuture<Map.Entry<Partition, Offset>>> commitFutures = new ArrayList<>();
-      partitions.forEach(
-          (partition, subscriber) -> {
-            Optional<ApiFuture<Offset>> commitFuture = subscriber.autoCommit();
-            if (!commitFuture.isPresent()) return;
-            commitFutures.add(
-                ApiFutures.transform(
-                    commitFuture.get(),
-                    offset -> new SimpleEntry<>(partition, offset),
-                    MoreExecutors.directExecutor()));
-          });
-      return ApiFutures.transform(
-          ApiFutures.allAsList(commitFutures),
-          results ->
-              ImmutableMap.copyOf(
-                  results.stream().collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()))),
-          MoreExecutors.directExecutor());
+    List<ApiFuture<Map.Entry<Partition, Offset>>> commitFutures = new ArrayList<>();
+    partitions.forEach(
+        (partition, subscriber) -> {
+          Optional<ApiFuture<Offset>> commitFuture = subscriber.autoCommit();
+          if (!commitFuture.isPresent()) return;
+          commitFutures.add(
+              ApiFutures.transform(
+                  commitFuture.get(),
+                  offset -> new SimpleEntry<>(partition, offset),
+                  MoreExecutors.directExecutor()));
+        });
+    if (commitFutures.isEmpty()) {
+      return ApiFutures.immediateFuture(ImmutableMap.of());
     }
+    return ApiFutures.transform(
+        metrics.recordCommit(ApiFutures.allAsList(commitFutures)),
+        results -> {
+          Map<Partition, Offset> committed =
+              ImmutableMap.copyOf(
+                  results.stream().collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue())));
+          committedOffsets.update(committed);
+          return committed;
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private void recordCommitted(Partition partition, ApiFuture<Offset> commit) {
+    ApiFutures.addCallback(
+        commit,
+        new ApiFutureCallback<Offset>() {
+          @Override
+          public void onFailure(Throwable t) {}
+
+          @Override
+          public void onSuccess(Offset offset) {
+            committedOffsets.update(ImmutableMap.of(partition, offset));
+          }
+        },
+        MoreExecutors.directExecutor());
   }
 
   @Override
   public ApiFuture<Void> commit(Map<Partition, Offset> commitOffsets) {
-    try (CloseableMonitor.Hold h = monitor.enter()) {
-      ImmutableList.Builder<ApiFuture<?>> commitFutures = ImmutableList.builder();
-      commitOffsets.forEach(
-          (partition, offset) -> {
-            if (!partitions.containsKey(partition)) {
-              throw new CommitFailedException(
-                  "Tried to commit to partition "
-                      + partition.value()
-                      + " which is not assigned to this consumer.");
-            }
-            commitFutures.add(partitions.get(partition).commitOffset(offset));
-          });
-      return ApiFutures.transform(
-          ApiFutures.allAsList(commitFutures.build()),
-          ignored -> null,
-          MoreExecutors.directExecutor());
-    }
+    ImmutableList.Builder<ApiFuture<?>> commitFutures = ImmutableList.builder();
+    commitOffsets.forEach(
+        (partition, offset) -> {
+          SinglePartitionSubscriber subscriber = partitions.get(partition);
+          if (subscriber == null) {
+            throw new CommitFailedException(
+                "Tried to commit to partition "
+                    + partition.value()
+                    + " which is not assigned to this consumer.");
+          }
+          commitFutures.add(subscriber.commitOffset(offset));
+        });
+    return ApiFutures.transform(
+        metrics.recordCommit(ApiFutures.allAsList(commitFutures.build())),
+        ignored -> {
+          committedOffsets.update(commitOffsets);
+          return null;
+        },
+        MoreExecutors.directExecutor());
   }
 
   @Override
   public void doSeek(Partition partition, SeekRequest request) throws KafkaException {
-    try (CloseableMonitor.Hold h = monitor.enter()) {
-      if (!partitions.containsKey(partition)) {
-        throw new IllegalStateException(
-            "Received seek for partition "
-                + partition.value()
-                + " which is not assigned to this consumer.");
-      }
-      partitions.get(partition).clientSeek(request);
-    } catch (IllegalStateException e) {
-      throw e;
+    SinglePartitionSubscriber subscriber = partitions.get(partition);
+    if (subscriber == null) {
+      throw new IllegalStateException(
+          "Received seek for partition "
+              + partition.value()
+              + " which is not assigned to this consumer.");
+    }
+    try {
+      subscriber.clientSeek(request);
     } catch (Throwable t) {
       throw toKafka(t);
     }
@@ -249,16 +626,52 @@ class SingleSubscriptionConsumerImpl implements SingleSubscriptionConsumer {
 
   @Override
   public Optional<Long> position(Partition partition) {
-    try (CloseableMonitor.Hold h = monitor.enter()) {
-      if (!partitions.containsKey(partition)) return Optional.empty();
-      return partitions.get(partition).position();
+    SinglePartitionSubscriber subscriber = partitions.get(partition);
+    if (subscriber == null) return Optional.empty();
+    return subscriber.position();
+  }
+
+  private List<SinglePartitionSubscriber> requireAssigned(Set<Partition> requested) {
+    List<SinglePartitionSubscriber> subscribers = new ArrayList<>();
+    for (Partition partition : requested) {
+      SinglePartitionSubscriber subscriber = partitions.get(partition);
+      if (subscriber == null) {
+        throw new IllegalStateException(
+            "No current assignment for partition " + partition.value() + ".");
+      }
+      subscribers.add(subscriber);
     }
+    return subscribers;
+  }
+
+  @Override
+  public void pause(Set<Partition> requested) {
+    requireAssigned(requested).forEach(subscriber -> subscriber.setPaused(true));
+  }
+
+  @Override
+  public void resume(Set<Partition> requested) {
+    requireAssigned(requested).forEach(subscriber -> subscriber.setPaused(false));
+  }
+
+  @Override
+  public Set<Partition> paused() {
+    ImmutableSet.Builder<Partition> paused = ImmutableSet.builder();
+    partitions.forEach(
+        (partition, subscriber) -> {
+          if (subscriber.isPaused()) paused.add(partition);
+        });
+    return paused.build();
   }
 
   @Override
   public void close(Duration duration) {
-    try (CloseableMonitor.Hold h = monitor.enter()) {
+    try (CloseableMonitor.Hold a = assignmentMonitor.enter();
+        CloseableMonitor.Hold h = pollMonitor.enter()) {
+      // Shutting down the committers waits for the flushed offsets to be committed.
+      if (autocommit) autocommitAll();
       blockingShutdown(partitions.values());
+      partitions.keySet().forEach(metrics::removePartition);
     } catch (Throwable t) {
       throw toKafka(t);
     }
@@ -266,6 +679,7 @@ class SingleSubscriptionConsumerImpl implements SingleSubscriptionConsumer {
 
   @Override
   public void wakeup() {
-    wakeupTriggered.set(null);
+    wakeupTriggered = true;
+    pollSignal.signal();
   }
 }
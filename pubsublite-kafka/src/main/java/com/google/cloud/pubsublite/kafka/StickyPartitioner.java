@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.internal.CloseableMonitor;
+import com.google.common.base.Ticker;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Routes keyless records to one partition until a batch for it would be full or has lingered, then
+ * moves on to the next partition, like Kafka's built-in partitioner. This sends fewer, fuller
+ * publish requests than spreading each record across partitions.
+ */
+class StickyPartitioner {
+  private final long maxMessages;
+  private final long maxBytes;
+  private final long lingerNanos;
+  private final Ticker ticker;
+
+  private final CloseableMonitor monitor = new CloseableMonitor();
+  private Partition current = null;
+  private long messages = 0;
+  private long bytes = 0;
+  private long startNanos = 0;
+
+  StickyPartitioner(BatchingSettings batchingSettings, Ticker ticker) {
+    this.maxMessages = batchingSettings.getElementCountThreshold();
+    this.maxBytes = batchingSettings.getRequestByteThreshold();
+    this.lingerNanos = batchingSettings.getDelayThreshold().toNanos();
+    this.ticker = ticker;
+  }
+
+  /** The partition for a keyless message of the given size. */
+  Partition partition(long partitionCount, long messageBytes) {
+    try (CloseableMonitor.Hold h = monitor.enter()) {
+      long nowNanos = ticker.read();
+      if (current == null) {
+        // Start at a random partition so that producers do not all fill the same one first.
+        moveTo(Partition.of(ThreadLocalRandom.current().nextLong(partitionCount)), nowNanos);
+      } else if (current.value() >= partitionCount
+          || messages >= maxMessages
+          || bytes >= maxBytes
+          || nowNanos - startNanos >= lingerNanos) {
+        moveTo(Partition.of((current.value() + 1) % partitionCount), nowNanos);
+      }
+      ++messages;
+      bytes += messageBytes;
+      return current;
+    }
+  }
+
+  private void moveTo(Partition partition, long nowNanos) {
+    current = partition;
+    messages = 0;
+    bytes = 0;
+    startNanos = nowNanos;
+  }
+}
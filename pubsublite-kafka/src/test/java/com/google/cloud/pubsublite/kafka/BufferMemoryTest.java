@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.api.core.ApiFuture;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.kafka.clients.producer.BufferExhaustedException;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BufferMemoryTest {
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void acquireAndRelease() throws Exception {
+    BufferMemory buffer = new BufferMemory(10, Duration.ZERO);
+    buffer.acquire(4);
+    buffer.acquire(6);
+    assertThat(buffer.availableBytes()).isEqualTo(0);
+    assertThrows(BufferExhaustedException.class, () -> buffer.acquire(1));
+    buffer.release(4);
+    assertThat(buffer.availableBytes()).isEqualTo(4);
+    buffer.acquire(4);
+    assertThat(buffer.availableBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void onAvailable() throws Exception {
+    BufferMemory buffer = new BufferMemory(10, Duration.ZERO);
+    assertThat(buffer.onAvailable(10).isDone()).isTrue();
+    buffer.acquire(10);
+    ApiFuture<Void> four = buffer.onAvailable(4);
+    ApiFuture<Void> eight = buffer.onAvailable(8);
+    buffer.release(5);
+    assertThat(four.isDone()).isTrue();
+    assertThat(eight.isDone()).isFalse();
+    buffer.release(5);
+    assertThat(eight.isDone()).isTrue();
+    // Waiting does not reserve bytes.
+    assertThat(buffer.availableBytes()).isEqualTo(10);
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> buffer.onAvailable(11).get());
+    assertThat(e).hasCauseThat().isInstanceOf(RecordTooLargeException.class);
+  }
+
+  @Test
+  public void waitersAreServedInOrder() throws Exception {
+    BufferMemory buffer = new BufferMemory(10, Duration.ofMinutes(1));
+    buffer.acquire(10);
+    Thread eight =
+        new Thread(
+            () -> {
+              try {
+                buffer.acquire(8);
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    eight.start();
+    while (eight.getState() != Thread.State.TIMED_WAITING) {
+      Thread.sleep(1);
+    }
+    buffer.release(5);
+    // The smaller request waits behind the larger one.
+    assertThrows(BufferExhaustedException.class, () -> buffer.acquire(2, Duration.ZERO));
+    buffer.release(3);
+    eight.join();
+    assertThat(buffer.availableBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void listenersDoNotHoldUpAcquire() throws Exception {
+    BufferMemory buffer = new BufferMemory(10, Duration.ZERO);
+    buffer.acquire(6);
+    ApiFuture<Void> eight = buffer.onAvailable(8);
+    buffer.acquire(4);
+    assertThat(eight.isDone()).isFalse();
+    buffer.release(10);
+    assertThat(eight.isDone()).isTrue();
+  }
+
+  @Test
+  public void cancelledListenerIsRemoved() throws Exception {
+    BufferMemory buffer = new BufferMemory(10, Duration.ZERO);
+    buffer.acquire(10);
+    ApiFuture<Void> eight = buffer.onAvailable(8);
+    ApiFuture<Void> four = buffer.onAvailable(4);
+    eight.cancel(false);
+    buffer.release(10);
+    assertThat(eight.isCancelled()).isTrue();
+    assertThat(four.isDone()).isTrue();
+    buffer.acquire(10);
+  }
+
+  @Test
+  public void timedOutAcquireIsRemoved() throws Exception {
+    BufferMemory buffer = new BufferMemory(10, Duration.ofMillis(10));
+    buffer.acquire(10);
+    assertThrows(BufferExhaustedException.class, () -> buffer.acquire(8));
+    buffer.release(5);
+    // Nothing is left queued ahead of a new request.
+    buffer.acquire(2);
+    assertThat(buffer.availableBytes()).isEqualTo(3);
+  }
+
+  @Test
+  public void largerThanTotalThrows() {
+    BufferMemory buffer = new BufferMemory(10, Duration.ofMinutes(1));
+    assertThrows(RecordTooLargeException.class, () -> buffer.acquire(11));
+    assertThat(buffer.availableBytes()).isEqualTo(10);
+  }
+
+  @Test
+  public void acquireTimesOut() throws Exception {
+    BufferMemory buffer = new BufferMemory(10, Duration.ofMillis(10));
+    buffer.acquire(10);
+    assertThrows(BufferExhaustedException.class, () -> buffer.acquire(1));
+  }
+
+  @Test
+  public void acquireBlocksUntilReleased() throws Exception {
+    BufferMemory buffer = new BufferMemory(10, Duration.ofMinutes(1));
+    buffer.acquire(10);
+    CountDownLatch started = new CountDownLatch(1);
+    Future<?> blocked =
+        executor.submit(
+            () -> {
+              started.countDown();
+              buffer.acquire(5);
+              return null;
+            });
+    started.await();
+    assertThat(blocked.isDone()).isFalse();
+    buffer.release(5);
+    blocked.get();
+    assertThat(buffer.availableBytes()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.pubsublite.Offset;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.SubscriptionPath;
+import com.google.cloud.pubsublite.internal.CursorClient;
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+@RunWith(JUnit4.class)
+public class CommittedOffsetCacheTest {
+  private static final Duration INTERVAL = Duration.ofSeconds(5);
+
+  @Mock CursorClient client;
+  @Mock ScheduledExecutorService executor;
+  @Mock ScheduledFuture<?> refreshTask;
+
+  private Runnable refresh;
+  private CommittedOffsetCache cache;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    doReturn(refreshTask)
+        .when(executor)
+        .scheduleWithFixedDelay(any(), eq(5000L), eq(5000L), eq(MILLISECONDS));
+    cache = new CommittedOffsetCache(client, example(SubscriptionPath.class), INTERVAL, executor);
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).scheduleWithFixedDelay(captor.capture(), eq(5000L), eq(5000L), any());
+    refresh = captor.getValue();
+  }
+
+  @Test
+  public void fetchesOnceAndRefreshes() throws Exception {
+    SettableApiFuture<Map<Partition, Offset>> first = SettableApiFuture.create();
+    when(client.listPartitionCursors(example(SubscriptionPath.class)))
+        .thenReturn(first)
+        .thenReturn(ApiFutures.immediateFuture(ImmutableMap.of(Partition.of(2), Offset.of(20))));
+    // Nothing is refreshed before the first read.
+    refresh.run();
+    verifyNoInteractions(client);
+
+    ApiFuture<Map<Partition, Offset>> load1 = cache.get();
+    ApiFuture<Map<Partition, Offset>> load2 = cache.get();
+    assertThat(load1.isDone()).isFalse();
+    // Concurrent misses share one request.
+    verify(client, times(1)).listPartitionCursors(example(SubscriptionPath.class));
+
+    first.set(ImmutableMap.of(Partition.of(2), Offset.of(10)));
+    assertThat(load1.get()).containsExactly(Partition.of(2), Offset.of(10));
+    assertThat(load2.get()).containsExactly(Partition.of(2), Offset.of(10));
+    assertThat(cache.get().get()).containsExactly(Partition.of(2), Offset.of(10));
+    verify(client, times(1)).listPartitionCursors(example(SubscriptionPath.class));
+
+    refresh.run();
+    assertThat(cache.get().get()).containsExactly(Partition.of(2), Offset.of(20));
+    verify(client, times(2)).listPartitionCursors(example(SubscriptionPath.class));
+  }
+
+  @Test
+  public void localCommitsNotOverwrittenByOlderRefresh() throws Exception {
+    SettableApiFuture<Map<Partition, Offset>> refreshed = SettableApiFuture.create();
+    when(client.listPartitionCursors(example(SubscriptionPath.class)))
+        .thenReturn(ApiFutures.immediateFuture(ImmutableMap.of(Partition.of(2), Offset.of(10))))
+        .thenReturn(refreshed);
+    assertThat(cache.get().get()).containsExactly(Partition.of(2), Offset.of(10));
+
+    refresh.run();
+    cache.update(ImmutableMap.of(Partition.of(2), Offset.of(15), Partition.of(3), Offset.of(5)));
+    assertThat(cache.get().get())
+        .containsExactly(Partition.of(2), Offset.of(15), Partition.of(3), Offset.of(5));
+    refreshed.set(ImmutableMap.of(Partition.of(2), Offset.of(12), Partition.of(4), Offset.of(7)));
+    assertThat(cache.get().get())
+        .containsExactly(
+            Partition.of(2), Offset.of(15), Partition.of(3), Offset.of(5), Partition.of(4),
+            Offset.of(7));
+  }
+
+  @Test
+  public void failedInitialFetchIsRetried() throws Exception {
+    when(client.listPartitionCursors(example(SubscriptionPath.class)))
+        .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("failed")))
+        .thenReturn(ApiFutures.immediateFuture(ImmutableMap.of(Partition.of(2), Offset.of(10))));
+    assertThrows(ExecutionException.class, () -> cache.get().get());
+    assertThat(cache.get().get()).containsExactly(Partition.of(2), Offset.of(10));
+  }
+
+  @Test
+  public void closeCancelsRefresh() {
+    cache.close();
+    verify(refreshTask).cancel(false);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.cloud.pubsublite.SubscriptionPath;
+import com.google.cloud.pubsublite.cloudpubsub.FlowControlSettings;
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.metrics.JmxReporter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConsumerSettingsTest {
+  private static final FlowControlSettings FLOW_CONTROL =
+      FlowControlSettings.builder().setBytesOutstanding(1000).setMessagesOutstanding(10).build();
+
+  private static ConsumerSettings.Builder builder() {
+    return ConsumerSettings.newBuilder()
+        .setSubscriptionPath(example(SubscriptionPath.class))
+        .setPerPartitionFlowControlSettings(FLOW_CONTROL);
+  }
+
+  @Test
+  public void defaults() {
+    ConsumerSettings settings = builder().build();
+    assertThat(settings.autocommit()).isFalse();
+    assertThat(settings.autocommitInterval()).isEqualTo(Duration.ofSeconds(5));
+    assertThat(settings.maxPollRecords()).isEqualTo(Integer.MAX_VALUE);
+    assertThat(settings.maxPollBytes()).isEqualTo(Long.MAX_VALUE);
+    assertThat(settings.perPartitionFlowControlSettings()).isEqualTo(FLOW_CONTROL);
+    assertThat(settings.clientId()).isEmpty();
+    assertThat(settings.metricsReporters()).isEmpty();
+    assertThat(settings.deserializationExecutor()).isEmpty();
+  }
+
+  @Test
+  public void setKafkaProperties() {
+    ConsumerSettings settings =
+        builder()
+            .setKafkaProperties(
+                ImmutableMap.of(
+                    "max.poll.records", "500",
+                    "fetch.max.bytes", 52428800,
+                    "enable.auto.commit", "true",
+                    "auto.commit.interval.ms", 100,
+                    "max.partition.fetch.bytes", "1048576",
+                    "client.id", "my-client",
+                    "metric.reporters", JmxReporter.class.getName(),
+                    "group.id", "ignored"))
+            .build();
+    assertThat(settings.maxPollRecords()).isEqualTo(500);
+    assertThat(settings.maxPollBytes()).isEqualTo(52428800L);
+    assertThat(settings.autocommit()).isTrue();
+    assertThat(settings.autocommitInterval()).isEqualTo(Duration.ofMillis(100));
+    assertThat(settings.perPartitionFlowControlSettings())
+        .isEqualTo(
+            FlowControlSettings.builder()
+                .setBytesOutstanding(1048576)
+                .setMessagesOutstanding(FLOW_CONTROL.messagesOutstanding())
+                .build());
+    assertThat(settings.clientId()).hasValue("my-client");
+    assertThat(settings.metricsReporters()).hasSize(1);
+    assertThat(settings.metricsReporters().get(0)).isInstanceOf(JmxReporter.class);
+  }
+
+  @Test
+  public void setKafkaPropertiesKeepsEarlierFlowControlSettings() {
+    assertThat(
+            builder()
+                .setKafkaProperties(ImmutableMap.of("max.partition.fetch.bytes", 2048))
+                .build()
+                .perPartitionFlowControlSettings())
+        .isEqualTo(
+            FlowControlSettings.builder()
+                .setBytesOutstanding(2048)
+                .setMessagesOutstanding(FLOW_CONTROL.messagesOutstanding())
+                .build());
+    assertThat(
+            ConsumerSettings.newBuilder()
+                .setSubscriptionPath(example(SubscriptionPath.class))
+                .setKafkaProperties(ImmutableMap.of("max.partition.fetch.bytes", 2048))
+                .build()
+                .perPartitionFlowControlSettings())
+        .isEqualTo(
+            FlowControlSettings.builder()
+                .setBytesOutstanding(2048)
+                .setMessagesOutstanding(Long.MAX_VALUE)
+                .build());
+  }
+
+  @Test
+  public void setKafkaPropertiesInvalid() {
+    assertThrows(
+        ConfigException.class,
+        () -> builder().setKafkaProperties(ImmutableMap.of("max.poll.records", "many")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> builder().setKafkaProperties(ImmutableMap.of("max.poll.records", 0)).build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> builder().setAutocommitInterval(Duration.ofMillis(-1)).build());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+@RunWith(JUnit4.class)
+public class DeliveryTimeoutsTest {
+  private static final Duration TIMEOUT = Duration.ofSeconds(1);
+
+  @Mock ScheduledExecutorService executor;
+  @Mock ScheduledFuture<?> sweepTask;
+
+  private final AtomicLong nanos = new AtomicLong();
+  private DeliveryTimeouts timeouts;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    doReturn(sweepTask).when(executor).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+    timeouts =
+        new DeliveryTimeouts(
+            TIMEOUT,
+            new Ticker() {
+              @Override
+              public long read() {
+                return nanos.get();
+              }
+            },
+            executor);
+  }
+
+  private void advance(Duration duration) {
+    nanos.addAndGet(duration.toNanos());
+    timeouts.sweep();
+  }
+
+  @Test
+  public void completedBeforeDeadline() throws Exception {
+    SettableApiFuture<String> future = SettableApiFuture.create();
+    ApiFuture<String> tracked = timeouts.track(future);
+    advance(Duration.ofMillis(500));
+    future.set("done");
+    assertThat(tracked.get()).isEqualTo("done");
+    advance(TIMEOUT);
+    assertThat(tracked.get()).isEqualTo("done");
+  }
+
+  @Test
+  public void failedBeforeDeadline() {
+    SettableApiFuture<String> future = SettableApiFuture.create();
+    ApiFuture<String> tracked = timeouts.track(future);
+    future.setException(new IllegalStateException());
+    ExecutionException e = assertThrows(ExecutionException.class, tracked::get);
+    assertThat(e).hasCauseThat().isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void expiresAfterDeadline() {
+    SettableApiFuture<String> early = SettableApiFuture.create();
+    ApiFuture<String> earlyTracked = timeouts.track(early);
+    advance(Duration.ofMillis(500));
+    SettableApiFuture<String> late = SettableApiFuture.create();
+    ApiFuture<String> lateTracked = timeouts.track(late);
+    advance(Duration.ofMillis(490));
+    assertThat(earlyTracked.isDone()).isFalse();
+
+    // Sends expire within a tick of their deadline.
+    advance(Duration.ofMillis(30));
+    ExecutionException e = assertThrows(ExecutionException.class, earlyTracked::get);
+    assertThat(e).hasCauseThat().isInstanceOf(TimeoutException.class);
+    assertThat(lateTracked.isDone()).isFalse();
+
+    advance(Duration.ofMillis(500));
+    e = assertThrows(ExecutionException.class, lateTracked::get);
+    assertThat(e).hasCauseThat().isInstanceOf(TimeoutException.class);
+    // Completing the underlying future later has no effect.
+    late.set("done");
+  }
+
+  @Test
+  public void expiresAfterSweepsFallBehind() {
+    ApiFuture<String> tracked = timeouts.track(SettableApiFuture.create());
+    advance(TIMEOUT.multipliedBy(10));
+    ExecutionException e = assertThrows(ExecutionException.class, tracked::get);
+    assertThat(e).hasCauseThat().isInstanceOf(TimeoutException.class);
+  }
+
+  @Test
+  public void closeCancelsSweeps() {
+    timeouts.close();
+    verify(sweepTask).cancel(false);
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.TopicPath;
+import com.google.cloud.pubsublite.internal.TopicStatsClient;
+import com.google.cloud.pubsublite.proto.Cursor;
+import com.google.common.collect.ImmutableSet;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+@RunWith(JUnit4.class)
+public class HeadOffsetCacheTest {
+  private static final Duration INTERVAL = Duration.ofSeconds(5);
+
+  @Mock TopicStatsClient client;
+  @Mock ScheduledExecutorService executor;
+  @Mock ScheduledFuture<?> refreshTask;
+
+  private Runnable refresh;
+  private HeadOffsetCache cache;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    doReturn(refreshTask)
+        .when(executor)
+        .scheduleWithFixedDelay(any(), eq(5000L), eq(5000L), eq(MILLISECONDS));
+    cache = new HeadOffsetCache(client, example(TopicPath.class), INTERVAL, executor);
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).scheduleWithFixedDelay(captor.capture(), eq(5000L), eq(5000L), any());
+    refresh = captor.getValue();
+  }
+
+  private static Cursor cursor(long offset) {
+    return Cursor.newBuilder().setOffset(offset).build();
+  }
+
+  @Test
+  public void fetchesOnFirstGetAndRefreshes() {
+    SettableApiFuture<Cursor> first = SettableApiFuture.create();
+    when(client.computeHeadCursor(example(TopicPath.class), Partition.of(2)))
+        .thenReturn(first)
+        .thenReturn(ApiFutures.immediateFuture(cursor(20)));
+    assertThat(cache.get(Partition.of(2))).isEmpty();
+    // A refresh while a request is outstanding does not issue another one.
+    refresh.run();
+    verify(client, times(1)).computeHeadCursor(example(TopicPath.class), Partition.of(2));
+
+    first.set(cursor(10));
+    assertThat(cache.get(Partition.of(2))).hasValue(10L);
+    refresh.run();
+    assertThat(cache.get(Partition.of(2))).hasValue(20L);
+    verify(client, times(2)).computeHeadCursor(example(TopicPath.class), Partition.of(2));
+  }
+
+  @Test
+  public void retainAllStopsTracking() {
+    when(client.computeHeadCursor(example(TopicPath.class), Partition.of(2)))
+        .thenReturn(ApiFutures.immediateFuture(cursor(10)));
+    assertThat(cache.get(Partition.of(2))).hasValue(10L);
+    cache.retainAll(ImmutableSet.of(Partition.of(3)));
+    refresh.run();
+    verify(client, times(1)).computeHeadCursor(example(TopicPath.class), Partition.of(2));
+  }
+
+  @Test
+  public void failedFetchIsRetried() {
+    when(client.computeHeadCursor(example(TopicPath.class), Partition.of(2)))
+        .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("failed")))
+        .thenReturn(ApiFutures.immediateFuture(cursor(10)));
+    assertThat(cache.get(Partition.of(2))).isEmpty();
+    refresh.run();
+    assertThat(cache.get(Partition.of(2))).hasValue(10L);
+  }
+
+  @Test
+  public void closeCancelsRefresh() {
+    cache.close();
+    verify(refreshTask).cancel(false);
+  }
+}
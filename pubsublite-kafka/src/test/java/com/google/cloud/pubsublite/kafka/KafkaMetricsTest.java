@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.stats.CumulativeSum;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class KafkaMetricsTest {
+  @Test
+  public void generatedClientIdsAreUnique() {
+    String first = KafkaMetrics.generateClientId("consumer");
+    String second = KafkaMetrics.generateClientId("consumer");
+    assertThat(first).startsWith("consumer-");
+    assertThat(second).isNotEqualTo(first);
+  }
+
+  @Test
+  public void metricsAreTaggedAndReportedToJmx() throws Exception {
+    try (Metrics metrics =
+        KafkaMetrics.newMetrics("kafka.consumer", "test-client", ImmutableList.of())) {
+      MetricName name = metrics.metricName("commit-failed-total", "consumer-coordinator-metrics");
+      assertThat(name.tags()).containsEntry(KafkaMetrics.CLIENT_ID_TAG, "test-client");
+      metrics.sensor("commit-failures").add(name, new CumulativeSum());
+      ObjectName bean =
+          new ObjectName("kafka.consumer:type=consumer-coordinator-metrics,client-id=test-client");
+      assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(bean)).isTrue();
+    }
+  }
+}
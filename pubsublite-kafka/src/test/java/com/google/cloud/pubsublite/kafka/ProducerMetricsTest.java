@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.cloud.pubsublite.TopicPath;
+import com.google.cloud.pubsublite.proto.InitialPublishRequest;
+import com.google.cloud.pubsublite.proto.MessagePublishRequest;
+import com.google.cloud.pubsublite.proto.MessagePublishResponse;
+import com.google.cloud.pubsublite.proto.PubSubMessage;
+import com.google.cloud.pubsublite.proto.PublishRequest;
+import com.google.cloud.pubsublite.proto.PublishResponse;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Metrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+
+@RunWith(JUnit4.class)
+public class ProducerMetricsTest {
+  @Mock ClientStream<PublishRequest> underlyingStream;
+  @Mock ResponseObserver<PublishResponse> responseObserver;
+
+  private final ProducerMetrics metrics =
+      new ProducerMetrics(new Metrics(), example(TopicPath.class));
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+  }
+
+  private double metricValue(String name) {
+    return (double)
+        metrics
+            .metrics()
+            .get(new MetricName(name, ProducerMetrics.PRODUCER_GROUP, "", ImmutableMap.of()))
+            .metricValue();
+  }
+
+  @Test
+  public void instrumentRecordsRequests() {
+    AtomicReference<ResponseObserver<PublishResponse>> wrappedObserver = new AtomicReference<>();
+    ClientStream<PublishRequest> stream =
+        metrics.instrument(
+            responseObserver,
+            observer -> {
+              wrappedObserver.set(observer);
+              return underlyingStream;
+            });
+
+    PublishRequest initial =
+        PublishRequest.newBuilder().setInitialRequest(InitialPublishRequest.newBuilder()).build();
+    stream.send(initial);
+    verify(underlyingStream).send(initial);
+    PubSubMessage message =
+        PubSubMessage.newBuilder().setData(ByteString.copyFromUtf8("abcd")).build();
+    PublishRequest batch =
+        PublishRequest.newBuilder()
+            .setMessagePublishRequest(
+                MessagePublishRequest.newBuilder().addMessages(message).addMessages(message))
+            .build();
+    stream.send(batch);
+    verify(underlyingStream).send(batch);
+    assertThat(metricValue("records-per-request-avg")).isEqualTo(2.0);
+    assertThat(metricValue("batch-size-avg")).isEqualTo(2.0 * message.getSerializedSize());
+
+    PublishResponse response =
+        PublishResponse.newBuilder()
+            .setMessageResponse(MessagePublishResponse.getDefaultInstance())
+            .build();
+    wrappedObserver.get().onResponse(response);
+    verify(responseObserver).onResponse(response);
+    assertThat(metricValue("request-latency-max")).isAtLeast(0.0);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.cloud.pubsublite.cloudpubsub.PublisherSettings.DEFAULT_BATCHING_SETTINGS;
+import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.cloud.pubsublite.TopicPath;
+import com.google.cloud.pubsublite.proto.PubSubMessage;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RoundRobinPartitioner;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.metrics.JmxReporter;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.threeten.bp.Duration;
+
+@RunWith(JUnit4.class)
+public class ProducerSettingsTest {
+  private static ProducerSettings.Builder builder() {
+    return ProducerSettings.newBuilder().setTopicPath(example(TopicPath.class));
+  }
+
+  @Test
+  public void defaultBatching() {
+    assertThat(builder().build().batchingSettings()).isEqualTo(DEFAULT_BATCHING_SETTINGS);
+  }
+
+  @Test
+  public void batchingValidated() {
+    BatchingSettings valid =
+        DEFAULT_BATCHING_SETTINGS.toBuilder()
+            .setElementCountThreshold(1000L)
+            .setRequestByteThreshold(3_500_000L)
+            .setDelayThreshold(Duration.ofMillis(1))
+            .build();
+    assertThat(builder().setBatchingSettings(valid).build().batchingSettings()).isEqualTo(valid);
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            builder()
+                .setBatchingSettings(valid.toBuilder().setElementCountThreshold(1001L).build())
+                .build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            builder()
+                .setBatchingSettings(valid.toBuilder().setRequestByteThreshold(3_500_001L).build())
+                .build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            builder()
+                .setBatchingSettings(valid.toBuilder().setDelayThreshold(Duration.ZERO).build())
+                .build());
+  }
+
+  @Test
+  public void batchingFromKafkaProperties() {
+    BatchingSettings settings =
+        ProducerSettings.batchingSettingsFromKafkaProperties(
+            ImmutableMap.of("linger.ms", "20", "batch.size", 65536));
+    assertThat(settings.getDelayThreshold()).isEqualTo(Duration.ofMillis(20));
+    assertThat(settings.getRequestByteThreshold()).isEqualTo(65536L);
+    assertThat(settings.getElementCountThreshold())
+        .isEqualTo(DEFAULT_BATCHING_SETTINGS.getElementCountThreshold());
+
+    BatchingSettings capped =
+        ProducerSettings.batchingSettingsFromKafkaProperties(
+            ImmutableMap.of("linger.ms", 0, "batch.size", "10000000"));
+    assertThat(capped.getDelayThreshold()).isEqualTo(Duration.ofMillis(1));
+    assertThat(capped.getRequestByteThreshold()).isEqualTo(3_500_000L);
+
+    assertThat(ProducerSettings.batchingSettingsFromKafkaProperties(ImmutableMap.of()))
+        .isEqualTo(DEFAULT_BATCHING_SETTINGS);
+  }
+
+  @Test
+  public void serializedArraysCopiedOnlyWhenCallerMayHoldThem() {
+    byte[] key = "key".getBytes();
+    byte[] value = "value".getBytes();
+    byte[] header = "header".getBytes();
+    ProducerRecord<byte[], byte[]> record =
+        new ProducerRecord<>(
+            example(TopicPath.class).toString(),
+            null,
+            key,
+            value,
+            ImmutableList.of(new RecordHeader("h", header)));
+
+    // StringSerializer returns new arrays, which are wrapped. ByteArraySerializer returns the
+    // caller's arrays, which are copied, as are header values.
+    PubSubMessage message =
+        builder()
+            .build()
+            .toMessage(new StringSerializer(), new ByteArraySerializer())
+            .apply(record);
+    key[0] = 'K';
+    value[0] = 'V';
+    header[0] = 'H';
+    assertThat(message.getKey().toStringUtf8()).isEqualTo("Key");
+    assertThat(message.getData().toStringUtf8()).isEqualTo("value");
+    assertThat(message.getAttributesOrThrow("h").getValues(0).toStringUtf8()).isEqualTo("header");
+
+    PubSubMessage zeroCopy =
+        builder()
+            .setZeroCopy(true)
+            .build()
+            .toMessage(new ByteArraySerializer(), new ByteArraySerializer())
+            .apply(record);
+    value[0] = 'W';
+    assertThat(zeroCopy.getData().toStringUtf8()).isEqualTo("Walue");
+  }
+
+  @Test
+  public void setKafkaPropertiesKeepsEarlierBatchingSettings() {
+    BatchingSettings custom =
+        DEFAULT_BATCHING_SETTINGS.toBuilder()
+            .setElementCountThreshold(10L)
+            .setRequestByteThreshold(1000L)
+            .setDelayThreshold(Duration.ofMillis(7))
+            .build();
+    assertThat(
+            builder()
+                .setBatchingSettings(custom)
+                .setKafkaProperties(ImmutableMap.of("acks", "all"))
+                .build()
+                .batchingSettings())
+        .isEqualTo(custom);
+    assertThat(
+            builder()
+                .setBatchingSettings(custom)
+                .setKafkaProperties(ImmutableMap.of("linger.ms", "20"))
+                .build()
+                .batchingSettings())
+        .isEqualTo(custom.toBuilder().setDelayThreshold(Duration.ofMillis(20)).build());
+  }
+
+  @Test
+  public void setKafkaProperties() {
+    ProducerSettings settings =
+        builder().setKafkaProperties(ImmutableMap.of("linger.ms", "5", "acks", "all")).build();
+    assertThat(settings.batchingSettings().getDelayThreshold()).isEqualTo(Duration.ofMillis(5));
+    assertThat(settings.partitioner()).isEmpty();
+    assertThat(settings.kafkaPartitioning()).isFalse();
+    ProducerSettings partitioned =
+        builder()
+            .setKafkaProperties(
+                ImmutableMap.of("partitioner.class", RoundRobinPartitioner.class.getName()))
+            .build();
+    assertThat(partitioned.partitioner().get()).isInstanceOf(RoundRobinPartitioner.class);
+    ProducerSettings buffered =
+        builder()
+            .setKafkaProperties(
+                ImmutableMap.of(
+                    "buffer.memory", "1024", "max.block.ms", 0, "delivery.timeout.ms", "5000"))
+            .build();
+    assertThat(buffered.bufferMemoryBytes()).isEqualTo(1024);
+    assertThat(buffered.maxBlock()).isEqualTo(java.time.Duration.ZERO);
+    assertThat(buffered.deliveryTimeout()).isEqualTo(java.time.Duration.ofSeconds(5));
+    ProducerSettings reported =
+        builder()
+            .setKafkaProperties(
+                ImmutableMap.of(
+                    "client.id", "my-client", "metric.reporters", JmxReporter.class.getName()))
+            .build();
+    assertThat(reported.clientId()).hasValue("my-client");
+    assertThat(reported.metricsReporters()).hasSize(1);
+    assertThat(reported.metricsReporters().get(0)).isInstanceOf(JmxReporter.class);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> builder().setKafkaProperties(ImmutableMap.of("batch.size", -1)));
+  }
+}
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -62,9 +63,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
-import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
@@ -72,10 +73,12 @@ import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
 import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.BrokerNotAvailableException;
 import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.metrics.Metrics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -108,31 +111,36 @@ public class PubsubLiteConsumerTest {
     return UnitTestExamples.example(klass);
   }
 
-  @Mock ConsumerFactory consumerFactory;
+  @Mock ConsumerFactory<byte[], byte[]> consumerFactory;
   @Mock AssignerFactory assignerFactory;
   @Mock CursorClient cursorClient;
   @Mock AdminClient adminClient;
   @Mock TopicStatsClient topicStatsClient;
+  @Mock HeadOffsetCache headOffsets;
+  @Mock CommittedOffsetCache committedOffsets;
 
   abstract static class FakeAssigner extends FakeApiService implements Assigner {}
 
   @Spy FakeAssigner assigner;
-  @Mock SingleSubscriptionConsumer underlying;
+  @Mock SingleSubscriptionConsumer<byte[], byte[]> underlying;
 
-  Consumer<byte[], byte[]> consumer;
+  NotifyingConsumer<byte[], byte[]> consumer;
 
   @Before
   public void setUp() {
     initMocks(this);
     consumer =
-        new PubsubLiteConsumer(
+        new PubsubLiteConsumer<>(
             example(SubscriptionPath.class),
             example(TopicPath.class),
             new SharedBehavior(adminClient),
             consumerFactory,
             assignerFactory,
             cursorClient,
-            topicStatsClient);
+            topicStatsClient,
+            headOffsets,
+            committedOffsets,
+            new ConsumerMetrics(new Metrics(), example(TopicPath.class)));
     when(consumerFactory.newConsumer()).thenReturn(underlying);
   }
 
@@ -156,13 +164,16 @@ public class PubsubLiteConsumerTest {
     // Pre-subscribe: returns empty set.
     assertThat(consumer.subscription()).isEmpty();
 
-    assertThat(consumer.metrics()).isEmpty();
+    assertThat(consumer.metrics())
+        .containsKey(
+            new MetricName(
+                "records-consumed-rate", ConsumerMetrics.FETCH_GROUP, "", ImmutableMap.of()));
     assertThat(consumer.groupMetadata().groupId())
         .isEqualTo(example(SubscriptionPath.class).toString());
     TopicPartition other = new TopicPartition(example(TopicPath.class).toString(), 2);
     assertThat(consumer.beginningOffsets(ImmutableList.of(example(TopicPartition.class), other)))
         .containsExactly(example(TopicPartition.class), 0L, other, 0L);
-    // No-op operations.
+    // Operations on no partitions.
     assertThat(consumer.paused()).isEmpty();
     consumer.pause(ImmutableList.of());
     consumer.resume(ImmutableList.of());
@@ -237,6 +248,7 @@ public class PubsubLiteConsumerTest {
     assertThrows(IllegalStateException.class, () -> consumer.assignment());
     assertThrows(IllegalStateException.class, () -> consumer.poll(3));
     assertThrows(IllegalStateException.class, () -> consumer.poll(Duration.ZERO));
+    assertThrows(IllegalStateException.class, () -> consumer.onRecordsAvailable());
     assertThrows(IllegalStateException.class, () -> consumer.commitSync(ImmutableMap.of()));
     assertThrows(
         IllegalStateException.class, () -> consumer.commitSync(ImmutableMap.of(), Duration.ZERO));
@@ -265,6 +277,9 @@ public class PubsubLiteConsumerTest {
         IllegalStateException.class,
         () -> consumer.position(example(TopicPartition.class), Duration.ZERO));
     assertThrows(IllegalStateException.class, () -> consumer.wakeup());
+    assertThrows(
+        IllegalStateException.class,
+        () -> consumer.pause(ImmutableList.of(example(TopicPartition.class))));
   }
 
   @Test
@@ -288,6 +303,12 @@ public class PubsubLiteConsumerTest {
     assertThat(consumer.subscription()).containsExactly(example(TopicPath.class).toString());
     consumer.wakeup();
     verify(underlying).wakeup();
+    consumer.pause(ImmutableList.of(example(TopicPartition.class)));
+    verify(underlying).pause(ImmutableSet.of(example(Partition.class)));
+    when(underlying.paused()).thenReturn(ImmutableSet.of(example(Partition.class)));
+    assertThat(consumer.paused()).containsExactly(example(TopicPartition.class));
+    consumer.resume(ImmutableList.of(example(TopicPartition.class)));
+    verify(underlying).resume(ImmutableSet.of(example(Partition.class)));
 
     // Assign empty calls unsubscribe.
     consumer.assign(ImmutableSet.of());
@@ -329,6 +350,14 @@ public class PubsubLiteConsumerTest {
     verify(underlying).setAssignment(ImmutableSet.of(Partition.of(7)));
   }
 
+  @Test
+  public void onRecordsAvailable() {
+    consumer.assign(ImmutableList.of(example(TopicPartition.class)));
+    SettableApiFuture<Void> onData = SettableApiFuture.create();
+    when(underlying.onData()).thenReturn(onData);
+    assertThat(consumer.onRecordsAvailable()).isSameInstanceAs(onData);
+  }
+
   @Test
   public void polling() {
     consumer.assign(ImmutableList.of(example(TopicPartition.class)));
@@ -487,6 +516,43 @@ public class PubsubLiteConsumerTest {
     assertThat(output).isEqualTo(ImmutableMap.of(partition2, 22L, partition4, 44L));
   }
 
+  @Test
+  public void currentLag() {
+    TopicPartition partition2 = new TopicPartition(example(TopicPath.class).toString(), 2);
+    TopicPartition partition4 = new TopicPartition(example(TopicPath.class).toString(), 4);
+    consumer.assign(ImmutableList.of(partition2));
+    when(underlying.assignment()).thenReturn(ImmutableSet.of(Partition.of(2)));
+    assertThrows(IllegalStateException.class, () -> consumer.currentLag(partition4));
+
+    when(headOffsets.get(Partition.of(2))).thenReturn(Optional.empty());
+    when(underlying.position(Partition.of(2))).thenReturn(Optional.of(10L));
+    assertThat(consumer.currentLag(partition2)).isEqualTo(OptionalLong.empty());
+
+    when(headOffsets.get(Partition.of(2))).thenReturn(Optional.of(25L));
+    assertThat(consumer.currentLag(partition2)).isEqualTo(OptionalLong.of(15));
+    verify(headOffsets, times(2)).retainAll(ImmutableSet.of(Partition.of(2)));
+    verifyNoInteractions(topicStatsClient);
+  }
+
+  @Test
+  public void committedAndPosition() {
+    TopicPartition partition2 = new TopicPartition(example(TopicPath.class).toString(), 2);
+    TopicPartition partition4 = new TopicPartition(example(TopicPath.class).toString(), 4);
+    when(committedOffsets.get())
+        .thenReturn(ApiFutures.immediateFuture(ImmutableMap.of(Partition.of(2), Offset.of(22))));
+    assertThat(consumer.committed(ImmutableSet.of(partition2, partition4)))
+        .isEqualTo(
+            ImmutableMap.of(
+                partition2, new OffsetAndMetadata(22), partition4, new OffsetAndMetadata(0)));
+
+    consumer.assign(ImmutableList.of(partition2));
+    when(underlying.position(Partition.of(2))).thenReturn(Optional.empty());
+    assertThat(consumer.position(partition2)).isEqualTo(22);
+    when(underlying.position(Partition.of(2))).thenReturn(Optional.of(30L));
+    assertThat(consumer.position(partition2)).isEqualTo(30);
+    verifyNoInteractions(cursorClient);
+  }
+
   @Test
   public void offsetsForTimes() {
     TopicPartition partition2 = new TopicPartition(example(TopicPath.class).toString(), 2);
@@ -531,5 +597,7 @@ public class PubsubLiteConsumerTest {
     verify(adminClient).close();
     verify(cursorClient).close();
     verify(topicStatsClient).close();
+    verify(headOffsets).close();
+    verify(committedOffsets).close();
   }
 }
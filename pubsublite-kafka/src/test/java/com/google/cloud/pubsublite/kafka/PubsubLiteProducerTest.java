@@ -20,9 +20,16 @@ import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.exam
 import static com.google.cloud.pubsublite.kafka.StatusTestHelpers.assertFutureThrowsCode;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutures;
 import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -35,18 +42,37 @@ import com.google.cloud.pubsublite.TopicPath;
 import com.google.cloud.pubsublite.internal.CheckedApiException;
 import com.google.cloud.pubsublite.internal.Publisher;
 import com.google.cloud.pubsublite.internal.testing.FakeApiService;
+import com.google.cloud.pubsublite.internal.wire.PartitionPublisherFactory;
 import com.google.cloud.pubsublite.proto.PubSubMessage;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.producer.BufferExhaustedException;
+import org.apache.kafka.clients.producer.Partitioner;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
 import org.apache.kafka.common.errors.UnsupportedVersionException;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -69,16 +95,87 @@ public class PubsubLiteProducerTest {
           example(TopicPath.class).toString(), (int) example(Partition.class).value());
 
   @Spy FakePublisher underlying;
+  @Spy FakePublisher partitionPublisher;
+  @Spy FakePublisher partitionedUnderlying;
+  @Mock PartitionPublisherFactory partitionPublisherFactory;
   @Mock AdminClient adminClient;
+  @Mock Partitioner partitioner;
+  @Mock ScheduledExecutorService alarmExecutor;
+  @Mock ScheduledFuture<?> sweepTask;
 
-  Producer<byte[], byte[]> producer;
+  PartitionPublisherRegistry partitionPublishers;
+  SharedBehavior shared;
+  DeliveryTimeouts deliveryTimeouts;
+
+  private final ProducerMetrics metrics =
+      new ProducerMetrics(new Metrics(), example(TopicPath.class));
+  // Room for two outstanding copies of MESSAGE.
+  private final BufferMemory buffer =
+      new BufferMemory(2L * MESSAGE.getSerializedSize(), Duration.ZERO);
+  private final AtomicLong nanos = new AtomicLong();
+  // The max block time of producers created by newProducer.
+  private Duration maxBlock = Duration.ZERO;
+
+  NotifyingProducer<byte[], byte[]> producer;
+
+  private double metricValue(String name) {
+    return (double)
+        producer
+            .metrics()
+            .get(new MetricName(name, ProducerMetrics.PRODUCER_GROUP, "", ImmutableMap.of()))
+            .metricValue();
+  }
+
+  /** Creates a producer on the shared test dependencies, publishing through the given publisher. */
+  private <K, V> PubsubLiteProducer<K, V> newProducer(
+      Publisher<MessageMetadata> publisher,
+      Optional<Partitioner> partitioner,
+      Serializer<K> keySerializer,
+      Serializer<V> valueSerializer,
+      Function<ProducerRecord<byte[], byte[]>, PubSubMessage> toMessage) {
+    return new PubsubLiteProducer<>(
+        publisher,
+        partitionPublishers,
+        new RecordRouter(
+            example(TopicPath.class), shared, Duration.ZERO, partitioner, false, Optional.empty()),
+        shared,
+        example(TopicPath.class),
+        keySerializer,
+        valueSerializer,
+        toMessage,
+        buffer,
+        maxBlock,
+        deliveryTimeouts,
+        metrics);
+  }
+
+  private PubsubLiteProducer<byte[], byte[]> newProducer(
+      Publisher<MessageMetadata> publisher, Optional<Partitioner> partitioner) {
+    return newProducer(
+        publisher,
+        partitioner,
+        new ByteArraySerializer(),
+        new ByteArraySerializer(),
+        RecordTransforms::toMessage);
+  }
 
   @Before
   public void setUp() {
     MockitoAnnotations.initMocks(this);
-    producer =
-        new PubsubLiteProducer(
-            underlying, new SharedBehavior(adminClient), example(TopicPath.class));
+    partitionPublishers = new PartitionPublisherRegistry(partitionPublisherFactory);
+    shared = new SharedBehavior(adminClient);
+    doReturn(sweepTask).when(alarmExecutor).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+    deliveryTimeouts =
+        new DeliveryTimeouts(
+            Duration.ofMinutes(1),
+            new Ticker() {
+              @Override
+              public long read() {
+                return nanos.get();
+              }
+            },
+            alarmExecutor);
+    producer = newProducer(underlying, Optional.empty());
     verify(underlying).startAsync();
     verify(underlying).awaitRunning();
   }
@@ -141,6 +238,8 @@ public class PubsubLiteProducerTest {
     assertThat(metadata.offset()).isEqualTo(example(Offset.class).value());
     assertThat(metadata.serializedKeySize()).isEqualTo(3);
     assertThat(metadata.serializedValueSize()).isEqualTo(4);
+    assertThat(metricValue("record-send-total")).isEqualTo(1.0);
+    assertThat(metricValue("record-error-total")).isEqualTo(0.0);
   }
 
   @Test
@@ -183,6 +282,7 @@ public class PubsubLiteProducerTest {
     verify(underlying).publish(MESSAGE);
     response.setException(new CheckedApiException(Code.FAILED_PRECONDITION).underlying);
     assertFutureThrowsCode(future, Code.FAILED_PRECONDITION);
+    assertThat(metricValue("record-error-total")).isEqualTo(1.0);
   }
 
   @Test
@@ -206,6 +306,212 @@ public class PubsubLiteProducerTest {
     assertFutureThrowsCode(leaked, Code.FAILED_PRECONDITION);
   }
 
+  @Test
+  public void sendTimesOut() {
+    SettableApiFuture<MessageMetadata> response = SettableApiFuture.create();
+    when(underlying.publish(MESSAGE)).thenReturn(response);
+    Future<RecordMetadata> future = producer.send(RECORD);
+    nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+    deliveryTimeouts.sweep();
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertThat(e).hasCauseThat().isInstanceOf(TimeoutException.class);
+    assertThat(metricValue("record-error-total")).isEqualTo(1.0);
+    // The message holds its buffer memory until the publisher is done with it.
+    assertThat(buffer.availableBytes()).isLessThan(buffer.totalBytes());
+    response.set(MessageMetadata.of(example(Partition.class), example(Offset.class)));
+    assertThat(buffer.availableBytes()).isEqualTo(buffer.totalBytes());
+  }
+
+  @Test
+  public void sendBlockedByBufferMemory() throws Exception {
+    SettableApiFuture<MessageMetadata> response = SettableApiFuture.create();
+    when(underlying.publish(MESSAGE)).thenReturn(response);
+    Future<RecordMetadata> first = producer.send(RECORD);
+    producer.send(RECORD);
+    assertThat(buffer.availableBytes()).isEqualTo(0);
+
+    SettableApiFuture<RecordMetadata> leaked = SettableApiFuture.create();
+    Future<RecordMetadata> exhausted =
+        producer.send(RECORD, (metadata, ex) -> leaked.setException(ex));
+    ExecutionException e = assertThrows(ExecutionException.class, exhausted::get);
+    assertThat(e).hasCauseThat().isInstanceOf(BufferExhaustedException.class);
+    e = assertThrows(ExecutionException.class, leaked::get);
+    assertThat(e).hasCauseThat().isInstanceOf(BufferExhaustedException.class);
+    verify(underlying, times(2)).publish(MESSAGE);
+    assertThat(metricValue("buffer-exhausted-total")).isEqualTo(1.0);
+    assertThat(metricValue("record-error-total")).isEqualTo(1.0);
+
+    response.set(MessageMetadata.of(example(Partition.class), example(Offset.class)));
+    first.get();
+    assertThat(buffer.availableBytes()).isEqualTo(buffer.totalBytes());
+    producer.send(RECORD).get();
+    verify(underlying, times(3)).publish(MESSAGE);
+  }
+
+  @Test
+  public void onBufferAvailable() throws Exception {
+    SettableApiFuture<MessageMetadata> response = SettableApiFuture.create();
+    when(underlying.publish(MESSAGE)).thenReturn(response);
+    producer.send(RECORD);
+    producer.send(RECORD);
+    assertThat(producer.onBufferAvailable(0).isDone()).isTrue();
+    ApiFuture<Void> available = producer.onBufferAvailable(MESSAGE.getSerializedSize());
+    assertThat(available.isDone()).isFalse();
+    response.set(MessageMetadata.of(example(Partition.class), example(Offset.class)));
+    available.get();
+
+    ExecutionException e =
+        assertThrows(
+            ExecutionException.class,
+            () -> producer.onBufferAvailable(buffer.totalBytes() + 1).get());
+    assertThat(e).hasCauseThat().isInstanceOf(RecordTooLargeException.class);
+  }
+
+  @Test
+  public void sendToPartitionWaitsForPublisher() throws Exception {
+    maxBlock = Duration.ofMinutes(1);
+    Producer<byte[], byte[]> waitingProducer = newProducer(partitionedUnderlying, Optional.empty());
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class)))
+        .thenReturn(ApiFutures.immediateFuture(2L));
+    when(partitionPublisherFactory.newPublisher(Partition.of(1))).thenReturn(partitionPublisher);
+    when(partitionPublisher.publish(MESSAGE))
+        .thenReturn(ApiFutures.immediateFuture(MessageMetadata.of(Partition.of(1), Offset.of(5))));
+    // The routing publisher learns of the partition after the send starts.
+    Thread creator =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+              partitionPublishers.newPublisher(Partition.of(1));
+            });
+    creator.start();
+    ProducerRecord<byte[], byte[]> record =
+        new ProducerRecord<>(
+            example(TopicPath.class).toString(), 1, "abc".getBytes(), "defg".getBytes());
+    assertThat(waitingProducer.send(record).get().offset()).isEqualTo(5);
+    creator.join();
+  }
+
+  @Test
+  public void sendFailsWhenPartitionsTimeOut() {
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class)))
+        .thenReturn(SettableApiFuture.create());
+    ProducerRecord<byte[], byte[]> record =
+        new ProducerRecord<>(
+            example(TopicPath.class).toString(), 1, "abc".getBytes(), "defg".getBytes());
+
+    SettableApiFuture<RecordMetadata> leaked = SettableApiFuture.create();
+    Future<RecordMetadata> future =
+        producer.send(record, (metadata, ex) -> leaked.setException(ex));
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertThat(e).hasCauseThat().isInstanceOf(TimeoutException.class);
+    e = assertThrows(ExecutionException.class, leaked::get);
+    assertThat(e).hasCauseThat().isInstanceOf(TimeoutException.class);
+    assertThat(metricValue("record-error-total")).isEqualTo(1.0);
+    assertThat(buffer.availableBytes()).isEqualTo(buffer.totalBytes());
+    verify(underlying, never()).publish(any());
+  }
+
+  @Test
+  public void sendLargerThanBufferMemory() {
+    ProducerRecord<byte[], byte[]> record =
+        new ProducerRecord<>(example(TopicPath.class).toString(), new byte[1024]);
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> producer.send(record).get());
+    assertThat(e).hasCauseThat().isInstanceOf(RecordTooLargeException.class);
+    verify(underlying, never()).publish(any());
+  }
+
+  @Test
+  public void sendToPartition() throws Exception {
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class)))
+        .thenReturn(ApiFutures.immediateFuture(2L));
+    ProducerRecord<byte[], byte[]> record =
+        new ProducerRecord<>(
+            example(TopicPath.class).toString(), 1, "abc".getBytes(), "defg".getBytes());
+
+    // The routing publisher has not created the partition's publisher within the max block time.
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> producer.send(record).get());
+    assertThat(e).hasCauseThat().isInstanceOf(TimeoutException.class);
+
+    when(partitionPublisherFactory.newPublisher(Partition.of(1))).thenReturn(partitionPublisher);
+    assertThat(partitionPublishers.newPublisher(Partition.of(1)))
+        .isSameInstanceAs(partitionPublisher);
+    when(partitionPublisher.publish(MESSAGE))
+        .thenReturn(ApiFutures.immediateFuture(MessageMetadata.of(Partition.of(1), Offset.of(5))));
+    RecordMetadata metadata = producer.send(record).get();
+    assertThat(metadata.partition()).isEqualTo(1);
+    assertThat(metadata.offset()).isEqualTo(5);
+    verify(underlying, never()).publish(any());
+
+    ProducerRecord<byte[], byte[]> invalid =
+        new ProducerRecord<>(
+            example(TopicPath.class).toString(), 2, "abc".getBytes(), "defg".getBytes());
+    assertThrows(KafkaException.class, () -> producer.send(invalid));
+  }
+
+  @Test
+  public void sendWithPartitioner() throws Exception {
+    Producer<byte[], byte[]> partitionedProducer =
+        newProducer(partitionedUnderlying, Optional.of(partitioner));
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class)))
+        .thenReturn(ApiFutures.immediateFuture(2L));
+    when(partitioner.partition(any(), any(), any(), any(), any(), any())).thenReturn(1);
+    when(partitionPublisherFactory.newPublisher(Partition.of(1))).thenReturn(partitionPublisher);
+    partitionPublishers.newPublisher(Partition.of(1));
+    when(partitionPublisher.publish(MESSAGE))
+        .thenReturn(ApiFutures.immediateFuture(MessageMetadata.of(Partition.of(1), Offset.of(5))));
+    assertThat(partitionedProducer.send(RECORD).get().partition()).isEqualTo(1);
+    verify(partitionedUnderlying, never()).publish(any());
+
+    partitionedProducer.close();
+    verify(partitioner).close();
+  }
+
+  @Test
+  public void sendWithSerializers() throws Exception {
+    Serializer<String> keySerializer = spy(new StringSerializer());
+    Serializer<String> valueSerializer = spy(new StringSerializer());
+    Producer<String, String> typedProducer =
+        newProducer(
+            partitionedUnderlying,
+            Optional.empty(),
+            keySerializer,
+            valueSerializer,
+            RecordTransforms::toMessage);
+    when(partitionedUnderlying.publish(MESSAGE))
+        .thenReturn(
+            ApiFutures.immediateFuture(
+                MessageMetadata.of(example(Partition.class), example(Offset.class))));
+    RecordMetadata metadata =
+        typedProducer
+            .send(new ProducerRecord<>(example(TopicPath.class).toString(), "abc", "defg"))
+            .get();
+    assertThat(metadata.serializedKeySize()).isEqualTo(3);
+    assertThat(metadata.serializedValueSize()).isEqualTo(4);
+    verify(partitionedUnderlying).publish(MESSAGE);
+
+    typedProducer.close();
+    verify(keySerializer).close();
+    verify(valueSerializer).close();
+  }
+
+  @Test
+  public void sendNullKeyAndValue() throws Exception {
+    ProducerRecord<byte[], byte[]> record =
+        new ProducerRecord<>(example(TopicPath.class).toString(), null);
+    PubSubMessage empty = PubSubMessage.getDefaultInstance();
+    when(underlying.publish(empty))
+        .thenReturn(
+            ApiFutures.immediateFuture(
+                MessageMetadata.of(example(Partition.class), example(Offset.class))));
+    assertThat(producer.send(record).get().serializedKeySize()).isEqualTo(0);
+  }
+
   @Test
   public void flush() throws Exception {
     producer.flush();
@@ -218,6 +524,7 @@ public class PubsubLiteProducerTest {
     verify(adminClient).close();
     verify(underlying).stopAsync();
     verify(underlying).awaitTerminated(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    verify(sweepTask).cancel(false);
   }
 
   @Test
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.cloud.pubsublite.cloudpubsub.PublisherSettings.DEFAULT_BATCHING_SETTINGS;
+import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.pubsublite.AdminClient;
+import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.TopicPath;
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.Optional;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+@RunWith(JUnit4.class)
+public class RecordRouterTest {
+  private static final String TOPIC = example(TopicPath.class).toString();
+
+  @Mock AdminClient adminClient;
+  @Mock Partitioner partitioner;
+  SharedBehavior shared;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    shared = new SharedBehavior(adminClient);
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class)))
+        .thenReturn(ApiFutures.immediateFuture(10L));
+  }
+
+  private RecordRouter router(Optional<Partitioner> partitioner, boolean kafkaPartitioning) {
+    return new RecordRouter(
+        example(TopicPath.class),
+        shared,
+        Duration.ZERO,
+        partitioner,
+        kafkaPartitioning,
+        Optional.empty());
+  }
+
+  private RecordRouter stickyRouter(boolean kafkaPartitioning) {
+    return new RecordRouter(
+        example(TopicPath.class),
+        shared,
+        Duration.ZERO,
+        Optional.empty(),
+        kafkaPartitioning,
+        Optional.of(new StickyPartitioner(DEFAULT_BATCHING_SETTINGS, Ticker.systemTicker())));
+  }
+
+  @Test
+  public void partitionsWaitAtMostMaxBlock() {
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class)))
+        .thenReturn(SettableApiFuture.create());
+    RecordRouter router = router(Optional.empty(), false);
+    assertThrows(
+        TimeoutException.class,
+        () -> router.route(new ProducerRecord<>(TOPIC, 3, "abc".getBytes(), new byte[0]), 10));
+    assertThrows(TimeoutException.class, router::partitions);
+  }
+
+  @Test
+  public void explicitPartition() {
+    RecordRouter router = router(Optional.of(partitioner), true);
+    assertThat(router.route(new ProducerRecord<>(TOPIC, 3, "abc".getBytes(), new byte[0]), 10))
+        .hasValue(Partition.of(3));
+    assertThrows(
+        KafkaException.class,
+        () -> router.route(new ProducerRecord<>(TOPIC, 10, "abc".getBytes(), new byte[0]), 10));
+  }
+
+  @Test
+  public void partitioner() {
+    RecordRouter router = router(Optional.of(partitioner), true);
+    byte[] key = "abc".getBytes();
+    byte[] value = "def".getBytes();
+    ArgumentCaptor<Cluster> cluster = ArgumentCaptor.forClass(Cluster.class);
+    when(partitioner.partition(eq(TOPIC), eq(key), eq(key), eq(value), eq(value), any()))
+        .thenReturn(4)
+        .thenReturn(-1);
+    assertThat(router.route(new ProducerRecord<>(TOPIC, key, value), 10)).hasValue(Partition.of(4));
+    verify(partitioner)
+        .partition(eq(TOPIC), eq(key), eq(key), eq(value), eq(value), cluster.capture());
+    assertThat(cluster.getValue().partitionCountForTopic(TOPIC)).isEqualTo(10);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> router.route(new ProducerRecord<>(TOPIC, key, value), 10));
+
+    router.close();
+    verify(partitioner).close();
+  }
+
+  @Test
+  public void partitionerWithTypedRecord() {
+    RecordRouter router = router(Optional.of(partitioner), true);
+    byte[] key = "abc".getBytes();
+    byte[] value = "def".getBytes();
+    when(partitioner.partition(eq(TOPIC), eq("abc"), eq(key), eq(7L), eq(value), any()))
+        .thenReturn(4);
+    ProducerRecord<String, Long> record = new ProducerRecord<>(TOPIC, "abc", 7L);
+    assertThat(router.route(record, new ProducerRecord<>(TOPIC, key, value), 10))
+        .hasValue(Partition.of(4));
+  }
+
+  @Test
+  public void kafkaPartitioning() {
+    RecordRouter router = router(Optional.empty(), true);
+    // The partitions chosen by a Kafka producer's default partitioner with 10 partitions.
+    assertThat(router.route(new ProducerRecord<>(TOPIC, "abc".getBytes(), new byte[0]), 10))
+        .hasValue(Partition.of(7));
+    assertThat(router.route(new ProducerRecord<>(TOPIC, "hello".getBytes(), new byte[0]), 10))
+        .hasValue(Partition.of(9));
+    // Keyless records are left to the publisher.
+    assertThat(router.route(new ProducerRecord<>(TOPIC, "value".getBytes()), 10)).isEmpty();
+  }
+
+  @Test
+  public void publisherRoutingByDefault() {
+    RecordRouter router = router(Optional.empty(), false);
+    assertThat(router.route(new ProducerRecord<>(TOPIC, "abc".getBytes(), new byte[0]), 10))
+        .isEmpty();
+    assertThat(router.route(new ProducerRecord<>(TOPIC, "value".getBytes()), 10)).isEmpty();
+  }
+
+  @Test
+  public void stickyPartitioningForKeylessRecords() {
+    RecordRouter router = stickyRouter(false);
+    Optional<Partition> first = router.route(new ProducerRecord<>(TOPIC, "value".getBytes()), 10);
+    assertThat(first).isPresent();
+    // Records with an empty key are routed like keyless ones by the publisher.
+    assertThat(router.route(new ProducerRecord<>(TOPIC, new byte[0], "value".getBytes()), 10))
+        .isEqualTo(first);
+    assertThat(router.route(new ProducerRecord<>(TOPIC, "abc".getBytes(), new byte[0]), 10))
+        .isEmpty();
+  }
+
+  @Test
+  public void stickyPartitioningWithKafkaPartitioning() {
+    RecordRouter router = stickyRouter(true);
+    assertThat(router.route(new ProducerRecord<>(TOPIC, "value".getBytes()), 10)).isPresent();
+    // Kafka hashes empty keys.
+    assertThat(router.route(new ProducerRecord<>(TOPIC, new byte[0], "value".getBytes()), 10))
+        .hasValue(Partition.of(1));
+  }
+}
@@ -18,6 +18,8 @@ package com.google.cloud.pubsublite.kafka;
 
 import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
 
 import com.google.cloud.pubsublite.Message;
 import com.google.cloud.pubsublite.Offset;
@@ -31,9 +33,14 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Timestamp;
+import java.nio.ByteBuffer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.errors.RecordDeserializationException.DeserializationExceptionOrigin;
 import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -75,6 +82,27 @@ public class RecordTransformsTest {
     assertThat(message).isEqualTo(MESSAGE);
   }
 
+  @Test
+  public void publishTransformZeroCopy() {
+    byte[] value = "def".getBytes();
+    ProducerRecord<byte[], byte[]> record =
+        new ProducerRecord<>(
+            example(TopicPath.class).toString(),
+            null,
+            1001L,
+            "abc".getBytes(),
+            value,
+            ImmutableList.of(
+                LiteHeaders.toHeader("xxx", ByteString.copyFromUtf8("yyy")),
+                LiteHeaders.toHeader("zzz", ByteString.copyFromUtf8("zzz")),
+                LiteHeaders.toHeader("zzz", ByteString.copyFromUtf8("zzz"))));
+    PubSubMessage message = RecordTransforms.toMessageZeroCopy(record);
+    assertThat(message).isEqualTo(MESSAGE);
+    // The value is wrapped, not copied.
+    value[0] = 'x';
+    assertThat(message.getData()).isEqualTo(ByteString.copyFromUtf8("xef"));
+  }
+
   @Test
   public void subscribeTransform() {
     SequencedMessage sequencedMessage =
@@ -100,4 +128,75 @@ public class RecordTransformsTest {
     assertThat(record.topic()).isEqualTo(example(TopicPath.class).toString());
     assertThat(record.partition()).isEqualTo(example(Partition.class).value());
   }
+
+  @Test
+  public void subscribeTransformZeroCopy() {
+    SequencedMessage sequencedMessage =
+        SequencedMessage.newBuilder()
+            .setMessage(MESSAGE)
+            .setPublishTime(Timestamp.newBuilder().setNanos(12345))
+            .setCursor(Cursor.newBuilder().setOffset(example(Offset.class).value()))
+            .setSizeBytes(123)
+            .build();
+    ConsumerRecord<ByteBuffer, ByteBuffer> record =
+        RecordTransforms.fromMessageZeroCopy(
+            sequencedMessage, example(TopicPath.class), example(Partition.class));
+    assertThat(record.key()).isEqualTo(ByteBuffer.wrap("abc".getBytes()));
+    assertThat(record.key().isReadOnly()).isTrue();
+    assertThat(record.value()).isEqualTo(ByteBuffer.wrap("def".getBytes()));
+    assertThat(record.value().isReadOnly()).isTrue();
+    assertThat(record.serializedKeySize()).isEqualTo(3);
+    assertThat(record.serializedValueSize()).isEqualTo(3);
+    assertThat(record.timestampType()).isEqualTo(TimestampType.CREATE_TIME);
+    assertThat(record.timestamp()).isEqualTo(1001L);
+    assertThat(record.offset()).isEqualTo(example(Offset.class).value());
+    assertThat(record.topic()).isEqualTo(example(TopicPath.class).toString());
+    assertThat(record.partition()).isEqualTo(example(Partition.class).value());
+  }
+
+  @Test
+  public void subscribeTransformDeserializing() {
+    SequencedMessage sequencedMessage =
+        SequencedMessage.newBuilder()
+            .setMessage(MESSAGE)
+            .setPublishTime(Timestamp.newBuilder().setNanos(12345))
+            .setCursor(Cursor.newBuilder().setOffset(example(Offset.class).value()))
+            .setSizeBytes(123)
+            .build();
+    ConsumerRecord<String, String> record =
+        RecordTransforms.deserializing(new StringDeserializer(), new StringDeserializer())
+            .newRecord(sequencedMessage, example(TopicPath.class), example(Partition.class));
+    assertThat(record.key()).isEqualTo("abc");
+    assertThat(record.value()).isEqualTo("def");
+    assertThat(record.serializedKeySize()).isEqualTo(3);
+    assertThat(record.serializedValueSize()).isEqualTo(3);
+    assertThat(record.headers().toArray()).hasLength(3);
+    assertThat(record.offset()).isEqualTo(example(Offset.class).value());
+    assertThat(record.partition()).isEqualTo(example(Partition.class).value());
+  }
+
+  @Test
+  public void subscribeTransformDeserializingFailure() {
+    SequencedMessage sequencedMessage =
+        SequencedMessage.newBuilder()
+            .setMessage(MESSAGE)
+            .setPublishTime(Timestamp.newBuilder().setNanos(12345))
+            .setCursor(Cursor.newBuilder().setOffset(example(Offset.class).value()))
+            .setSizeBytes(123)
+            .build();
+    // An IntegerDeserializer only accepts 4 byte keys.
+    RecordDeserializationException e =
+        assertThrows(
+            RecordDeserializationException.class,
+            () ->
+                RecordTransforms.deserializing(new IntegerDeserializer(), new StringDeserializer())
+                    .newRecord(
+                        sequencedMessage, example(TopicPath.class), example(Partition.class)));
+    assertThat(e.origin()).isEqualTo(DeserializationExceptionOrigin.KEY);
+    assertThat(e.offset()).isEqualTo(example(Offset.class).value());
+    assertThat(e.topicPartition().partition()).isEqualTo(example(Partition.class).value());
+    assertThat(e.timestampType()).isEqualTo(TimestampType.CREATE_TIME);
+    assertThat(e.timestamp()).isEqualTo(1001);
+    assertThat(e.keyBuffer()).isEqualTo(ByteBuffer.wrap("abc".getBytes(UTF_8)));
+  }
 }
@@ -19,18 +19,27 @@ package com.google.cloud.pubsublite.kafka;
 import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.rpc.StatusCode;
 import com.google.cloud.pubsublite.AdminClient;
 import com.google.cloud.pubsublite.TopicPath;
 import com.google.cloud.pubsublite.internal.CheckedApiException;
+import com.google.common.base.Ticker;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.errors.BrokerNotAvailableException;
 import org.apache.kafka.common.errors.InvalidRequestException;
 import org.junit.Before;
 import org.junit.Test;
@@ -41,12 +50,26 @@ import org.mockito.Mock;
 @RunWith(JUnit4.class)
 public class SharedBehaviorTest {
   @Mock AdminClient adminClient;
+  private final AtomicLong nanos = new AtomicLong();
   SharedBehavior shared;
 
   @Before
   public void setUp() {
     initMocks(this);
-    shared = new SharedBehavior(adminClient);
+    shared =
+        new SharedBehavior(
+            adminClient,
+            Duration.ofSeconds(10),
+            new Ticker() {
+              @Override
+              public long read() {
+                return nanos.get();
+              }
+            });
+  }
+
+  private void advance(Duration duration) {
+    nanos.addAndGet(duration.toNanos());
   }
 
   @Test
@@ -75,6 +98,73 @@ public class SharedBehaviorTest {
         () -> shared.partitionsFor(example(TopicPath.class), Duration.ofMillis(10)));
   }
 
+  @Test
+  public void partitionsForCachedAndRefreshed() {
+    SettableApiFuture<Long> refreshed = SettableApiFuture.create();
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class)))
+        .thenReturn(ApiFutures.immediateFuture(2L))
+        .thenReturn(refreshed)
+        .thenReturn(ApiFutures.immediateFuture(3L));
+    List<PartitionInfo> first = shared.partitionsFor(example(TopicPath.class), Duration.ZERO);
+    assertThat(first).hasSize(2);
+    advance(Duration.ofSeconds(4));
+    assertThat(shared.partitionsFor(example(TopicPath.class), Duration.ZERO))
+        .isSameInstanceAs(first);
+    verify(adminClient, times(1)).getTopicPartitionCount(example(TopicPath.class));
+
+    // After half the TTL, the cached list is returned while it is refreshed in the background.
+    advance(Duration.ofSeconds(2));
+    assertThat(shared.partitionsFor(example(TopicPath.class), Duration.ZERO))
+        .isSameInstanceAs(first);
+    assertThat(shared.partitionsFor(example(TopicPath.class), Duration.ZERO))
+        .isSameInstanceAs(first);
+    verify(adminClient, times(2)).getTopicPartitionCount(example(TopicPath.class));
+    // An unchanged count keeps the same list.
+    refreshed.set(2L);
+    assertThat(shared.partitionsFor(example(TopicPath.class), Duration.ZERO))
+        .isSameInstanceAs(first);
+
+    // Once the TTL has elapsed, the partitions are fetched again.
+    advance(Duration.ofSeconds(10));
+    assertThat(shared.partitionsFor(example(TopicPath.class), Duration.ZERO)).hasSize(3);
+    verify(adminClient, times(3)).getTopicPartitionCount(example(TopicPath.class));
+  }
+
+  @Test
+  public void partitionsForSingleFlight() throws Exception {
+    SettableApiFuture<Long> count = SettableApiFuture.create();
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class))).thenReturn(count);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<List<PartitionInfo>> first =
+          executor.submit(
+              () -> shared.partitionsFor(example(TopicPath.class), Duration.ofMinutes(1)));
+      Future<List<PartitionInfo>> second =
+          executor.submit(
+              () -> shared.partitionsFor(example(TopicPath.class), Duration.ofMinutes(1)));
+      verify(adminClient, timeout(10_000)).getTopicPartitionCount(example(TopicPath.class));
+      count.set(2L);
+      assertThat(first.get()).hasSize(2);
+      assertThat(second.get()).isSameInstanceAs(first.get());
+      verify(adminClient, times(1)).getTopicPartitionCount(example(TopicPath.class));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void partitionsForFailureNotCached() {
+    when(adminClient.getTopicPartitionCount(example(TopicPath.class)))
+        .thenReturn(
+            ApiFutures.immediateFailedFuture(
+                new CheckedApiException(StatusCode.Code.UNAVAILABLE).underlying))
+        .thenReturn(ApiFutures.immediateFuture(2L));
+    assertThrows(
+        BrokerNotAvailableException.class,
+        () -> shared.partitionsFor(example(TopicPath.class), Duration.ZERO));
+    assertThat(shared.partitionsFor(example(TopicPath.class), Duration.ZERO)).hasSize(2);
+  }
+
   @Test
   public void close() {
     shared.close();
@@ -16,6 +16,7 @@
 
 package com.google.cloud.pubsublite.kafka;
 
+import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -24,9 +25,11 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutures;
 import com.google.cloud.pubsublite.Offset;
 import com.google.cloud.pubsublite.Partition;
+import com.google.cloud.pubsublite.TopicPath;
 import com.google.cloud.pubsublite.internal.BlockingPullSubscriber;
 import com.google.cloud.pubsublite.internal.CheckedApiException;
 import com.google.cloud.pubsublite.internal.testing.FakeApiService;
@@ -36,7 +39,11 @@ import com.google.cloud.pubsublite.proto.Cursor;
 import com.google.cloud.pubsublite.proto.SeekRequest;
 import com.google.cloud.pubsublite.proto.SeekRequest.NamedTarget;
 import com.google.cloud.pubsublite.proto.SequencedMessage;
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
 import java.util.Optional;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Metrics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -57,6 +64,11 @@ public class SinglePartitionSubscriberTest {
   @Mock PullSubscriberFactory subscriberFactory;
   @Mock BlockingPullSubscriber pullSubscriber;
   @Spy FakeCommitter committer;
+  @Mock ApiFuture<Void> onData;
+
+  private final PollSignal pollSignal = new PollSignal();
+  private final ConsumerMetrics metrics =
+      new ConsumerMetrics(new Metrics(), example(TopicPath.class));
 
   @Captor private ArgumentCaptor<SubscriberResetHandler> resetHandlerCaptor;
 
@@ -73,10 +85,15 @@ public class SinglePartitionSubscriberTest {
     return SequencedMessage.newBuilder().setCursor(Cursor.newBuilder().setOffset(offset)).build();
   }
 
+  private static SequencedMessage message(long offset, long sizeBytes) {
+    return message(offset).toBuilder().setSizeBytes(sizeBytes).build();
+  }
+
   @Test
   public void pullAndCommit() throws Exception {
     subscriber =
-        new SinglePartitionSubscriber(subscriberFactory, PARTITION, INITIAL_SEEK, committer, true);
+        new SinglePartitionSubscriber(
+            subscriberFactory, PARTITION, INITIAL_SEEK, committer, pollSignal, metrics, true);
     verify(subscriberFactory).newPullSubscriber(eq(PARTITION), eq(INITIAL_SEEK), any());
     verify(committer).state();
 
@@ -86,7 +103,8 @@ public class SinglePartitionSubscriberTest {
         .thenReturn(Optional.of(message(5)))
         .thenReturn(Optional.of(message(7)))
         .thenReturn(Optional.empty());
-    assertThat(subscriber.getMessages()).containsExactly(message(3), message(5), message(7));
+    assertThat(subscriber.getMessages(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE))
+        .containsExactly(message(3), message(5), message(7));
     assertThat(subscriber.position()).hasValue(8);
     verify(pullSubscriber, times(4)).messageIfAvailable();
 
@@ -99,10 +117,77 @@ public class SinglePartitionSubscriberTest {
     subscriber.autoCommit();
   }
 
+  @Test
+  public void pullWithLimits() throws Exception {
+    subscriber =
+        new SinglePartitionSubscriber(
+            subscriberFactory, PARTITION, INITIAL_SEEK, committer, pollSignal, metrics, true);
+
+    when(pullSubscriber.messageIfAvailable())
+        .thenReturn(Optional.of(message(3, 10)))
+        .thenReturn(Optional.of(message(5, 10)))
+        .thenReturn(Optional.of(message(7, 100)))
+        .thenReturn(Optional.of(message(9, 10)))
+        .thenReturn(Optional.empty());
+    // Limited by message count.
+    assertThat(subscriber.getMessages(1, Long.MAX_VALUE, Long.MAX_VALUE))
+        .containsExactly(message(3, 10));
+    assertThat(subscriber.position()).hasValue(4);
+    verify(pullSubscriber, times(1)).messageIfAvailable();
+
+    // Limited by maximum bytes: the message that does not fit is carried over.
+    assertThat(subscriber.getMessages(10, Long.MAX_VALUE, 50)).containsExactly(message(5, 10));
+    assertThat(subscriber.position()).hasValue(6);
+    verify(pullSubscriber, times(3)).messageIfAvailable();
+    assertThat(subscriber.hasCarryOver()).isTrue();
+    subscriber.signalOnData();
+    assertThat(pollSignal.await(Duration.ZERO)).isTrue();
+    assertThat(subscriber.getMessages(10, Long.MAX_VALUE, 50)).isEmpty();
+    assertThat(subscriber.position()).hasValue(6);
+
+    // The carried over message is returned once it fits.
+    assertThat(subscriber.getMessages(1, Long.MAX_VALUE, Long.MAX_VALUE))
+        .containsExactly(message(7, 100));
+    assertThat(subscriber.position()).hasValue(8);
+    assertThat(subscriber.hasCarryOver()).isFalse();
+    verify(pullSubscriber, times(3)).messageIfAvailable();
+
+    // Limited by target bytes.
+    assertThat(subscriber.getMessages(10, 5, Long.MAX_VALUE)).containsExactly(message(9, 10));
+    assertThat(subscriber.position()).hasValue(10);
+    verify(pullSubscriber, times(4)).messageIfAvailable();
+
+    // Auto commit commits the last returned message.
+    when(committer.commitOffset(Offset.of(10))).thenReturn(ApiFutures.immediateFuture(null));
+    subscriber.autoCommit();
+    verify(committer).commitOffset(Offset.of(10));
+  }
+
+  @Test
+  public void signalOnDataRegistersOnce() throws Exception {
+    subscriber =
+        new SinglePartitionSubscriber(
+            subscriberFactory, PARTITION, INITIAL_SEEK, committer, pollSignal, metrics, true);
+    when(pullSubscriber.onData()).thenReturn(onData);
+    when(onData.isDone()).thenReturn(false);
+
+    subscriber.signalOnData();
+    subscriber.signalOnData();
+    subscriber.signalOnData();
+    assertThat(pollSignal.await(Duration.ZERO)).isFalse();
+
+    // Only a single listener is registered for the same notification future.
+    ArgumentCaptor<Runnable> listener = ArgumentCaptor.forClass(Runnable.class);
+    verify(onData, times(1)).addListener(listener.capture(), any());
+    listener.getValue().run();
+    assertThat(pollSignal.await(Duration.ZERO)).isTrue();
+  }
+
   @Test
   public void resetSubscriberEnabled() throws Exception {
     subscriber =
-        new SinglePartitionSubscriber(subscriberFactory, PARTITION, INITIAL_SEEK, committer, true);
+        new SinglePartitionSubscriber(
+            subscriberFactory, PARTITION, INITIAL_SEEK, committer, pollSignal, metrics, true);
     verify(subscriberFactory)
         .newPullSubscriber(eq(PARTITION), eq(INITIAL_SEEK), resetHandlerCaptor.capture());
     verify(committer).state();
@@ -113,7 +198,8 @@ public class SinglePartitionSubscriberTest {
         .thenReturn(Optional.of(message(5)))
         .thenReturn(Optional.of(message(7)))
         .thenReturn(Optional.empty());
-    assertThat(subscriber.getMessages()).containsExactly(message(3), message(5), message(7));
+    assertThat(subscriber.getMessages(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE))
+        .containsExactly(message(3), message(5), message(7));
 
     // Subscriber reset handled.
     when(pullSubscriber.messageIfAvailable())
@@ -122,6 +208,17 @@ public class SinglePartitionSubscriberTest {
     assertThat(resetHandlerCaptor.getValue().handleReset()).isTrue();
     verify(committer).waitUntilEmpty();
     verify(pullSubscriber, times(6)).messageIfAvailable();
+    assertThat(
+            metrics
+                .metrics()
+                .get(
+                    new MetricName(
+                        "partition-reset-total",
+                        ConsumerMetrics.FETCH_GROUP,
+                        "",
+                        ImmutableMap.of()))
+                .metricValue())
+        .isEqualTo(1.0);
 
     // Undelivered messages are discarded.
     assertThat(subscriber.position()).hasValue(8);
@@ -133,7 +230,8 @@ public class SinglePartitionSubscriberTest {
     when(pullSubscriber.messageIfAvailable())
         .thenReturn(Optional.of(message(2)))
         .thenReturn(Optional.empty());
-    assertThat(subscriber.getMessages()).containsExactly(message(2));
+    assertThat(subscriber.getMessages(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE))
+        .containsExactly(message(2));
     assertThat(subscriber.position()).hasValue(3);
     verify(pullSubscriber, times(8)).messageIfAvailable();
 
@@ -146,7 +244,8 @@ public class SinglePartitionSubscriberTest {
   @Test
   public void resetSubscriberDisabled() throws Exception {
     subscriber =
-        new SinglePartitionSubscriber(subscriberFactory, PARTITION, INITIAL_SEEK, committer, false);
+        new SinglePartitionSubscriber(
+            subscriberFactory, PARTITION, INITIAL_SEEK, committer, pollSignal, metrics, false);
     verify(subscriberFactory)
         .newPullSubscriber(eq(PARTITION), eq(INITIAL_SEEK), resetHandlerCaptor.capture());
     verify(committer).state();
@@ -157,7 +256,8 @@ public class SinglePartitionSubscriberTest {
         .thenReturn(Optional.of(message(5)))
         .thenReturn(Optional.of(message(7)))
         .thenReturn(Optional.empty());
-    assertThat(subscriber.getMessages()).containsExactly(message(3), message(5), message(7));
+    assertThat(subscriber.getMessages(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE))
+        .containsExactly(message(3), message(5), message(7));
     assertThat(subscriber.position()).hasValue(8);
     verify(pullSubscriber, times(4)).messageIfAvailable();
 
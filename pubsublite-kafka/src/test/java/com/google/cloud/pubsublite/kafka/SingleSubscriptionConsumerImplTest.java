@@ -18,6 +18,9 @@ package com.google.cloud.pubsublite.kafka;
 
 import static com.google.cloud.pubsublite.internal.testing.UnitTestExamples.example;
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -30,6 +33,8 @@ import static org.mockito.MockitoAnnotations.initMocks;
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutures;
 import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode.Code;
 import com.google.cloud.pubsublite.Offset;
 import com.google.cloud.pubsublite.Partition;
 import com.google.cloud.pubsublite.TopicPath;
@@ -39,6 +44,7 @@ import com.google.cloud.pubsublite.internal.testing.FakeApiService;
 import com.google.cloud.pubsublite.internal.wire.Committer;
 import com.google.cloud.pubsublite.internal.wire.SystemExecutors;
 import com.google.cloud.pubsublite.proto.Cursor;
+import com.google.cloud.pubsublite.proto.PubSubMessage;
 import com.google.cloud.pubsublite.proto.SeekRequest;
 import com.google.cloud.pubsublite.proto.SeekRequest.NamedTarget;
 import com.google.cloud.pubsublite.proto.SequencedMessage;
@@ -47,13 +53,33 @@ import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import org.apache.kafka.clients.consumer.CommitFailedException;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.errors.RecordDeserializationException.DeserializationExceptionOrigin;
+import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -81,14 +107,93 @@ public class SingleSubscriptionConsumerImplTest {
   @Spy FakeCommitter committer5;
   @Spy FakeCommitter committer8;
 
-  private SingleSubscriptionConsumer consumer;
+  abstract static class FailingCommitter extends FakeApiService implements Committer {
+    @Override
+    protected void doStart() {
+      notifyFailed(new CheckedApiException(Code.INTERNAL).underlying);
+    }
+  }
+
+  @Spy FailingCommitter failingCommitter;
+
+  @Mock CommittedOffsetCache committedOffsets;
+
+  private final ConsumerMetrics metrics =
+      new ConsumerMetrics(new Metrics(), example(TopicPath.class));
+
+  private SingleSubscriptionConsumer<byte[], byte[]> consumer;
+
+  /** Builds consumers on the mocks above. Unset options take the values of the default consumer. */
+  private class ConsumerBuilder<K, V> {
+    private final ConsumerRecordFactory<K, V> recordFactory;
+    private boolean autocommit = false;
+    private Duration autocommitInterval = Duration.ZERO;
+    private int maxPollRecords = Integer.MAX_VALUE;
+    private long maxPollBytes = Long.MAX_VALUE;
+    private Optional<Executor> recordExecutor = Optional.empty();
+    private Executor executor = MoreExecutors.directExecutor();
+
+    ConsumerBuilder(ConsumerRecordFactory<K, V> recordFactory) {
+      this.recordFactory = recordFactory;
+    }
+
+    ConsumerBuilder<K, V> setAutocommit(Duration interval) {
+      this.autocommit = true;
+      this.autocommitInterval = interval;
+      return this;
+    }
+
+    ConsumerBuilder<K, V> setMaxPollRecords(int maxPollRecords) {
+      this.maxPollRecords = maxPollRecords;
+      return this;
+    }
+
+    ConsumerBuilder<K, V> setMaxPollBytes(long maxPollBytes) {
+      this.maxPollBytes = maxPollBytes;
+      return this;
+    }
+
+    ConsumerBuilder<K, V> setRecordExecutor(Executor recordExecutor) {
+      this.recordExecutor = Optional.of(recordExecutor);
+      return this;
+    }
+
+    ConsumerBuilder<K, V> setExecutor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    SingleSubscriptionConsumer<K, V> build() {
+      return new SingleSubscriptionConsumerImpl<>(
+          example(TopicPath.class),
+          autocommit,
+          autocommitInterval,
+          maxPollRecords,
+          maxPollBytes,
+          subscriberFactory,
+          committerFactory,
+          recordFactory,
+          recordExecutor,
+          executor,
+          metrics,
+          committedOffsets);
+    }
+  }
+
+  private ConsumerBuilder<byte[], byte[]> newConsumer() {
+    return new ConsumerBuilder<>(RecordTransforms::fromMessage);
+  }
+
+  private <K, V> ConsumerBuilder<K, V> newConsumer(
+      Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) {
+    return new ConsumerBuilder<>(
+        RecordTransforms.deserializing(keyDeserializer, valueDeserializer));
+  }
 
   @Before
   public void setUp() throws CheckedApiException {
     initMocks(this);
-    consumer =
-        new SingleSubscriptionConsumerImpl(
-            example(TopicPath.class), false, subscriberFactory, committerFactory);
+    consumer = newConsumer().build();
     verifyNoInteractions(subscriberFactory, committerFactory);
     when(subscriberFactory.newPullSubscriber(eq(Partition.of(5)), any(), any()))
         .thenReturn(subscriber5);
@@ -108,6 +213,10 @@ public class SingleSubscriptionConsumerImplTest {
     return message(Offset.of(offset));
   }
 
+  private static SequencedMessage message(long offset, long sizeBytes) {
+    return message(offset).toBuilder().setSizeBytes(sizeBytes).build();
+  }
+
   private static void assertConsumerRecordsEqual(
       ConsumerRecords<byte[], byte[]> records, ListMultimap<Partition, Offset> target) {
     ImmutableListMultimap.Builder<Partition, Offset> builder = ImmutableListMultimap.builder();
@@ -186,6 +295,8 @@ public class SingleSubscriptionConsumerImplTest {
     assertThat(committed.get())
         .containsExactlyEntriesIn(
             ImmutableMap.of(Partition.of(5), Offset.of(4), Partition.of(8), Offset.of(5)));
+    verify(committedOffsets)
+        .update(ImmutableMap.of(Partition.of(5), Offset.of(4), Partition.of(8), Offset.of(5)));
     // Close closes.
     consumer.close(Duration.ZERO);
     verify(subscriber5).close();
@@ -196,9 +307,7 @@ public class SingleSubscriptionConsumerImplTest {
 
   @Test
   public void assignAndPollAutocommit() throws Exception {
-    consumer =
-        new SingleSubscriptionConsumerImpl(
-            example(TopicPath.class), true, subscriberFactory, committerFactory);
+    consumer = newConsumer().setAutocommit(Duration.ZERO).build();
     consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
     verify(subscriberFactory).newPullSubscriber(eq(Partition.of(5)), eq(DEFAULT_SEEK), any());
     verify(subscriberFactory).newPullSubscriber(eq(Partition.of(8)), eq(DEFAULT_SEEK), any());
@@ -265,6 +374,379 @@ public class SingleSubscriptionConsumerImplTest {
     verify(committer8).stopAsync();
   }
 
+  @Test
+  public void autocommitInterval() throws Exception {
+    consumer = newConsumer().setAutocommit(Duration.ofDays(1)).build();
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1)))
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(message(2)))
+        .thenReturn(Optional.empty());
+    when(subscriber8.messageIfAvailable())
+        .thenReturn(Optional.of(message(3)))
+        .thenReturn(Optional.empty());
+    consumer.poll(Duration.ZERO);
+    consumer.poll(Duration.ZERO);
+    // Nothing is committed before the interval elapses.
+    verify(committer5, times(0)).commitOffset(any());
+    verify(committer8, times(0)).commitOffset(any());
+
+    // Revoking a partition flushes its latest offset.
+    when(committer8.commitOffset(Offset.of(4))).thenReturn(ApiFutures.immediateFuture(null));
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
+    verify(committer8).commitOffset(Offset.of(4));
+    verify(committedOffsets).update(ImmutableMap.of(Partition.of(8), Offset.of(4)));
+    verify(committer8).stopAsync();
+
+    // Closing flushes the latest offsets of the remaining partitions.
+    when(committer5.commitOffset(Offset.of(3))).thenReturn(ApiFutures.immediateFuture(null));
+    consumer.close(Duration.ZERO);
+    verify(committer5).commitOffset(Offset.of(3));
+    verify(committer5, times(1)).commitOffset(any());
+    verify(committedOffsets).update(ImmutableMap.of(Partition.of(5), Offset.of(3)));
+    verify(committer5).stopAsync();
+  }
+
+  @Test
+  public void pollLimits() throws Exception {
+    consumer =
+        newConsumer().setAutocommit(Duration.ZERO).setMaxPollRecords(3).setMaxPollBytes(25).build();
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, 5)))
+        .thenReturn(Optional.of(message(2, 5)))
+        .thenReturn(Optional.of(message(3, 5)))
+        .thenReturn(Optional.of(message(4, 21)))
+        .thenReturn(Optional.of(message(5, 5)))
+        .thenReturn(Optional.empty());
+    // Limited by record count.
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO),
+        ImmutableListMultimap.<Partition, Offset>builder()
+            .putAll(Partition.of(5), ImmutableList.of(Offset.of(1), Offset.of(2), Offset.of(3)))
+            .build());
+    assertThat(consumer.position(Partition.of(5))).hasValue(4);
+
+    // Limited by bytes.
+    when(committer5.commitOffset(Offset.of(4))).thenReturn(ApiFutures.immediateFuture(null));
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO),
+        ImmutableListMultimap.<Partition, Offset>builder()
+            .putAll(Partition.of(5), ImmutableList.of(Offset.of(4)))
+            .build());
+    verify(committer5).commitOffset(Offset.of(4));
+    assertThat(consumer.position(Partition.of(5))).hasValue(5);
+
+    // The carried over record is returned by the next poll.
+    when(committer5.commitOffset(Offset.of(5))).thenReturn(ApiFutures.immediateFuture(null));
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO),
+        ImmutableListMultimap.<Partition, Offset>builder()
+            .putAll(Partition.of(5), ImmutableList.of(Offset.of(5)))
+            .build());
+    verify(committer5).commitOffset(Offset.of(5));
+    assertThat(consumer.position(Partition.of(5))).hasValue(6);
+  }
+
+  @Test
+  public void pollReturnsOversizedRecord() throws Exception {
+    consumer = newConsumer().setMaxPollBytes(10).build();
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, 50)))
+        .thenReturn(Optional.of(message(2, 50)))
+        .thenReturn(Optional.empty());
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO),
+        ImmutableListMultimap.<Partition, Offset>builder()
+            .putAll(Partition.of(5), ImmutableList.of(Offset.of(1)))
+            .build());
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO),
+        ImmutableListMultimap.<Partition, Offset>builder()
+            .putAll(Partition.of(5), ImmutableList.of(Offset.of(2)))
+            .build());
+  }
+
+  @Test
+  public void pollReturnsOversizedRecordWhileOtherPartitionsHaveRecords() throws Exception {
+    consumer = newConsumer().setMaxPollBytes(10).build();
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    // Partition 5 always has small records.
+    AtomicInteger offset5 = new AtomicInteger();
+    when(subscriber5.messageIfAvailable())
+        .thenAnswer(invocation -> Optional.of(message(offset5.incrementAndGet(), 1)));
+    when(subscriber8.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, 50)))
+        .thenReturn(Optional.empty());
+    TopicPartition partition8 = new TopicPartition(example(TopicPath.class).toString(), 8);
+
+    ConsumerRecords<byte[], byte[]> records = consumer.poll(Duration.ZERO);
+    assertThat(records.count()).isEqualTo(10);
+    assertThat(records.records(partition8)).isEmpty();
+    // Once partition 8 is drained first, its oversized record is returned.
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO), ImmutableListMultimap.of(Partition.of(8), Offset.of(1)));
+    assertThat(consumer.position(Partition.of(8))).hasValue(2);
+  }
+
+  @Test
+  public void pollSharesLimitsBetweenPartitions() throws Exception {
+    consumer = newConsumer().setMaxPollRecords(4).build();
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1)))
+        .thenReturn(Optional.of(message(2)))
+        .thenReturn(Optional.of(message(3)))
+        .thenReturn(Optional.of(message(4)))
+        .thenReturn(Optional.of(message(5)))
+        .thenReturn(Optional.of(message(6)))
+        .thenReturn(Optional.empty());
+    when(subscriber8.messageIfAvailable())
+        .thenReturn(Optional.of(message(1)))
+        .thenReturn(Optional.of(message(2)))
+        .thenReturn(Optional.empty());
+    // Each partition receives an equal share.
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO),
+        ImmutableListMultimap.<Partition, Offset>builder()
+            .putAll(Partition.of(5), ImmutableList.of(Offset.of(1), Offset.of(2)))
+            .putAll(Partition.of(8), ImmutableList.of(Offset.of(1), Offset.of(2)))
+            .build());
+    // Budget unused by an idle partition goes to the busy one.
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO),
+        ImmutableListMultimap.<Partition, Offset>builder()
+            .putAll(
+                Partition.of(5),
+                ImmutableList.of(Offset.of(3), Offset.of(4), Offset.of(5), Offset.of(6)))
+            .build());
+  }
+
+  private static SequencedMessage message(long offset, String data) {
+    return message(offset).toBuilder()
+        .setMessage(PubSubMessage.newBuilder().setData(ByteString.copyFromUtf8(data)))
+        .build();
+  }
+
+  @Test
+  public void pollDeserializesPartitionsInParallel() throws Exception {
+    SingleSubscriptionConsumer<String, String> deserializing =
+        newConsumer(new StringDeserializer(), new StringDeserializer())
+            .setRecordExecutor(ForkJoinPool.commonPool())
+            .build();
+    deserializing.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, "a")))
+        .thenReturn(Optional.of(message(2, "b")))
+        .thenReturn(Optional.of(message(3, "c")))
+        .thenReturn(Optional.empty());
+    when(subscriber8.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, "x")))
+        .thenReturn(Optional.of(message(2, "y")))
+        .thenReturn(Optional.empty());
+    ConsumerRecords<String, String> records = deserializing.poll(Duration.ZERO);
+    assertThat(
+            records.records(new TopicPartition(example(TopicPath.class).toString(), 5)).stream()
+                .map(ConsumerRecord::value)
+                .collect(Collectors.toList()))
+        .containsExactly("a", "b", "c")
+        .inOrder();
+    assertThat(
+            records.records(new TopicPartition(example(TopicPath.class).toString(), 8)).stream()
+                .map(ConsumerRecord::value)
+                .collect(Collectors.toList()))
+        .containsExactly("x", "y")
+        .inOrder();
+  }
+
+  @Test
+  public void pollThrowsDeserializationFailures() throws Exception {
+    SingleSubscriptionConsumer<String, Integer> deserializing =
+        newConsumer(new StringDeserializer(), new IntegerDeserializer())
+            .setRecordExecutor(ForkJoinPool.commonPool())
+            .build();
+    deserializing.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    // An IntegerDeserializer only accepts 4 byte values.
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, "abc")))
+        .thenReturn(Optional.empty());
+    when(subscriber8.messageIfAvailable()).thenReturn(Optional.empty());
+    RecordDeserializationException e =
+        assertThrows(
+            RecordDeserializationException.class, () -> deserializing.poll(Duration.ZERO));
+    assertThat(e.topicPartition().partition()).isEqualTo(5);
+    assertThat(e.offset()).isEqualTo(1);
+    assertThat(e.origin()).isEqualTo(DeserializationExceptionOrigin.VALUE);
+  }
+
+  private static <V> List<V> values(ConsumerRecords<?, V> records, TopicPartition partition) {
+    return records.records(partition).stream()
+        .map(ConsumerRecord::value)
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void pollAfterDeserializationFailureSkipsNoRecord() throws Exception {
+    // Fails to decode "bad" the first two times.
+    AtomicInteger failures = new AtomicInteger(2);
+    Deserializer<String> flaky =
+        (topic, data) -> {
+          String value = new String(data, UTF_8);
+          if (value.equals("bad") && failures.getAndDecrement() > 0) {
+            throw new SerializationException("Failed to decode.");
+          }
+          return value;
+        };
+    SingleSubscriptionConsumer<String, String> deserializing =
+        newConsumer(new StringDeserializer(), flaky).build();
+    deserializing.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, "a")))
+        .thenReturn(Optional.of(message(2, "bad")))
+        .thenReturn(Optional.of(message(3, "c")))
+        .thenReturn(Optional.empty());
+    when(subscriber8.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, "x")))
+        .thenReturn(Optional.empty());
+    TopicPartition partition5 = new TopicPartition(example(TopicPath.class).toString(), 5);
+    TopicPartition partition8 = new TopicPartition(example(TopicPath.class).toString(), 8);
+
+    // The records decoded before the failure are returned first.
+    ConsumerRecords<String, String> records = deserializing.poll(Duration.ZERO);
+    assertThat(values(records, partition5)).containsExactly("a");
+    assertThat(values(records, partition8)).containsExactly("x");
+    assertThat(deserializing.position(Partition.of(5))).hasValue(2L);
+
+    // The next poll fails on the record, leaving the position at it.
+    RecordDeserializationException e =
+        assertThrows(
+            RecordDeserializationException.class, () -> deserializing.poll(Duration.ZERO));
+    assertThat(e.topicPartition()).isEqualTo(partition5);
+    assertThat(e.offset()).isEqualTo(2);
+    assertThat(deserializing.position(Partition.of(5))).hasValue(2L);
+
+    // Once the record decodes, consumption continues from it.
+    records = deserializing.poll(Duration.ZERO);
+    assertThat(values(records, partition5)).containsExactly("bad", "c").inOrder();
+    assertThat(deserializing.position(Partition.of(5))).hasValue(4L);
+  }
+
+  @Test
+  public void pollRotatesFirstPartition() throws Exception {
+    consumer = newConsumer().setMaxPollRecords(1).build();
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1)))
+        .thenReturn(Optional.of(message(2)));
+    when(subscriber8.messageIfAvailable())
+        .thenReturn(Optional.of(message(1)))
+        .thenReturn(Optional.of(message(2)));
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO), ImmutableListMultimap.of(Partition.of(5), Offset.of(1)));
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO), ImmutableListMultimap.of(Partition.of(8), Offset.of(1)));
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO), ImmutableListMultimap.of(Partition.of(5), Offset.of(2)));
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO), ImmutableListMultimap.of(Partition.of(8), Offset.of(2)));
+  }
+
+  private double metricValue(String name, String group, Map<String, String> tags) {
+    return (double)
+        metrics.metrics().get(new MetricName(name, group, "", tags)).metricValue();
+  }
+
+  @Test
+  public void pollRecordsMetrics() throws Exception {
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, 10)))
+        .thenReturn(Optional.of(message(2, 20)))
+        .thenReturn(Optional.empty());
+    when(subscriber8.messageIfAvailable())
+        .thenReturn(Optional.of(message(1, 5)))
+        .thenReturn(Optional.empty());
+    consumer.poll(Duration.ZERO);
+
+    String group = ConsumerMetrics.FETCH_GROUP;
+    assertThat(metricValue("records-consumed-total", group, ImmutableMap.of())).isEqualTo(3.0);
+    assertThat(metricValue("bytes-consumed-total", group, ImmutableMap.of())).isEqualTo(35.0);
+    Map<String, String> partition5 =
+        ImmutableMap.of("topic", example(TopicPath.class).toString(), "partition", "5");
+    assertThat(metricValue("records-consumed-total", group, partition5)).isEqualTo(2.0);
+    assertThat(metricValue("bytes-consumed-total", group, partition5)).isEqualTo(30.0);
+
+    // Commits are counted.
+    when(committer5.commitOffset(Offset.of(3))).thenReturn(ApiFutures.immediateFuture(null));
+    consumer.commit(ImmutableMap.of(Partition.of(5), Offset.of(3))).get();
+    assertThat(metricValue("commit-total", ConsumerMetrics.COORDINATOR_GROUP, ImmutableMap.of()))
+        .isEqualTo(1.0);
+
+    // Per-partition metrics are removed with the partition.
+    consumer.setAssignment(ImmutableSet.of(Partition.of(8)));
+    assertThat(metrics.metrics())
+        .doesNotContainKey(new MetricName("records-consumed-total", group, "", partition5));
+  }
+
+  @Test
+  public void pauseAndResume() throws Exception {
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber8.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    when(subscriber5.messageIfAvailable())
+        .thenReturn(Optional.of(message(1)))
+        .thenReturn(Optional.empty());
+    when(subscriber8.messageIfAvailable())
+        .thenReturn(Optional.of(message(2)))
+        .thenReturn(Optional.empty());
+
+    consumer.pause(ImmutableSet.of(Partition.of(5)));
+    assertThat(consumer.paused()).containsExactly(Partition.of(5));
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO), ImmutableListMultimap.of(Partition.of(8), Offset.of(2)));
+    // Paused partitions are not pulled, so their flow control tokens are withheld.
+    verify(subscriber5, times(0)).onData();
+    verify(subscriber5, times(0)).messageIfAvailable();
+
+    consumer.resume(ImmutableSet.of(Partition.of(5)));
+    assertThat(consumer.paused()).isEmpty();
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO), ImmutableListMultimap.of(Partition.of(5), Offset.of(1)));
+    // The stream is not recreated.
+    verify(subscriberFactory, times(1)).newPullSubscriber(eq(Partition.of(5)), any(), any());
+  }
+
+  @Test
+  public void pauseNotAssigned() {
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
+    assertThrows(
+        IllegalStateException.class,
+        () -> consumer.pause(ImmutableSet.of(Partition.of(5), Partition.of(8))));
+    assertThat(consumer.paused()).isEmpty();
+    assertThrows(
+        IllegalStateException.class, () -> consumer.resume(ImmutableSet.of(Partition.of(8))));
+  }
+
   @Test
   public void wakeupBeforePoll() {
     consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
@@ -285,6 +767,25 @@ public class SingleSubscriptionConsumerImplTest {
     assertThrows(WakeupException.class, () -> consumer.poll(Duration.ofDays(1)));
   }
 
+  @Test
+  public void onData() {
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
+    SettableApiFuture<Void> data = SettableApiFuture.create();
+    when(subscriber5.onData()).thenReturn(data);
+    // The signal set by the assignment change is cleared.
+    ApiFuture<Void> ready = consumer.onData();
+    assertThat(ready.isDone()).isFalse();
+    assertThat(consumer.onData()).isSameInstanceAs(ready);
+    data.set(null);
+    assertThat(ready.isDone()).isTrue();
+
+    when(subscriber5.onData()).thenReturn(SettableApiFuture.create());
+    ready = consumer.onData();
+    assertThat(ready.isDone()).isFalse();
+    consumer.wakeup();
+    assertThat(ready.isDone()).isTrue();
+  }
+
   @Test
   public void assignmentChange() throws Exception {
     consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
@@ -301,6 +802,75 @@ public class SingleSubscriptionConsumerImplTest {
     verify(committer5).stopAsync();
   }
 
+  @Test
+  public void assignmentFailsIfPartitionFailsToStart() {
+    when(committerFactory.newCommitter(Partition.of(8))).thenReturn(failingCommitter);
+    assertThrows(
+        ApiException.class,
+        () -> consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8))));
+    assertThat(consumer.assignment()).containsExactly(Partition.of(5));
+    verify(failingCommitter).startAsync();
+  }
+
+  @Test
+  public void assignmentStartsPartitionsConcurrently() throws Exception {
+    ExecutorService executor = Executors.newCachedThreadPool();
+    consumer = newConsumer().setExecutor(executor).build();
+    // Neither partition can finish starting until both have begun.
+    CountDownLatch bothStarting = new CountDownLatch(2);
+    when(subscriberFactory.newPullSubscriber(eq(Partition.of(5)), any(), any()))
+        .thenAnswer(
+            args -> {
+              bothStarting.countDown();
+              assertThat(bothStarting.await(30, SECONDS)).isTrue();
+              return subscriber5;
+            });
+    when(subscriberFactory.newPullSubscriber(eq(Partition.of(8)), any(), any()))
+        .thenAnswer(
+            args -> {
+              bothStarting.countDown();
+              assertThat(bothStarting.await(30, SECONDS)).isTrue();
+              return subscriber8;
+            });
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5), Partition.of(8)));
+    assertThat(consumer.assignment()).containsExactly(Partition.of(5), Partition.of(8));
+    verify(committer5).startAsync();
+    verify(committer8).startAsync();
+
+    consumer.setAssignment(ImmutableSet.of());
+    assertThat(consumer.assignment()).isEmpty();
+    verify(subscriber5).close();
+    verify(subscriber8).close();
+    executor.shutdown();
+  }
+
+  @Test
+  public void revokeWaitsForOngoingPull() throws Exception {
+    consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
+    when(subscriber5.onData()).thenReturn(ApiFutures.immediateFuture(null));
+    SettableApiFuture<Void> revoked = SettableApiFuture.create();
+    when(subscriber5.messageIfAvailable())
+        .thenAnswer(
+            args -> {
+              new Thread(
+                      () -> {
+                        consumer.setAssignment(ImmutableSet.of());
+                        revoked.set(null);
+                      })
+                  .start();
+              // The partition cannot be revoked while a poll is pulling from it.
+              assertThrows(TimeoutException.class, () -> revoked.get(100, MILLISECONDS));
+              verify(subscriber5, times(0)).close();
+              return Optional.of(message(1));
+            })
+        .thenReturn(Optional.empty());
+    assertConsumerRecordsEqual(
+        consumer.poll(Duration.ZERO), ImmutableListMultimap.of(Partition.of(5), Offset.of(1)));
+    revoked.get();
+    assertThat(consumer.assignment()).isEmpty();
+    verify(subscriber5).close();
+  }
+
   @Test
   public void assignmentChangeMakesPollReturn() throws Exception {
     consumer.setAssignment(ImmutableSet.of(Partition.of(5)));
@@ -341,8 +911,10 @@ public class SingleSubscriptionConsumerImplTest {
     when(committer5.commitOffset(Offset.of(1))).thenReturn(commit5);
     ApiFuture<Void> commitFuture = consumer.commit(ImmutableMap.of(Partition.of(5), Offset.of(1)));
     assertThat(commitFuture.isDone()).isFalse();
+    verifyNoInteractions(committedOffsets);
     commit5.set(null);
     assertThat(commitFuture.isDone()).isTrue();
+    verify(committedOffsets).update(ImmutableMap.of(Partition.of(5), Offset.of(1)));
   }
 
   @Test
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsublite.kafka;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.cloud.pubsublite.Partition;
+import com.google.common.base.Ticker;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.threeten.bp.Duration;
+
+@RunWith(JUnit4.class)
+public class StickyPartitionerTest {
+  private static final BatchingSettings BATCHING =
+      BatchingSettings.newBuilder()
+          .setElementCountThreshold(3L)
+          .setRequestByteThreshold(100L)
+          .setDelayThreshold(Duration.ofMillis(50))
+          .build();
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final StickyPartitioner partitioner =
+      new StickyPartitioner(
+          BATCHING,
+          new Ticker() {
+            @Override
+            public long read() {
+              return nanos.get();
+            }
+          });
+
+  private static Partition next(Partition partition, long count) {
+    return Partition.of((partition.value() + 1) % count);
+  }
+
+  @Test
+  public void switchesWhenBatchIsFull() {
+    Partition first = partitioner.partition(4, 10);
+    assertThat(partitioner.partition(4, 10)).isEqualTo(first);
+    assertThat(partitioner.partition(4, 10)).isEqualTo(first);
+    // The element count threshold has been reached.
+    Partition second = partitioner.partition(4, 60);
+    assertThat(second).isEqualTo(next(first, 4));
+    assertThat(partitioner.partition(4, 60)).isEqualTo(second);
+    // The request byte threshold has been reached.
+    assertThat(partitioner.partition(4, 10)).isEqualTo(next(second, 4));
+  }
+
+  @Test
+  public void switchesWhenBatchHasLingered() {
+    Partition first = partitioner.partition(4, 10);
+    nanos.addAndGet(Duration.ofMillis(49).toNanos());
+    assertThat(partitioner.partition(4, 10)).isEqualTo(first);
+    nanos.addAndGet(Duration.ofMillis(1).toNanos());
+    assertThat(partitioner.partition(4, 10)).isEqualTo(next(first, 4));
+  }
+
+  @Test
+  public void switchesWhenPartitionCountShrinks() {
+    partitioner.partition(4, 10);
+    for (int i = 0; i < 4; ++i) {
+      assertThat(partitioner.partition(1, 10)).isEqualTo(Partition.of(0));
+    }
+  }
+}